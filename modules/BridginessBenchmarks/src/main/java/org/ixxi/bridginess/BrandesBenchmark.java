@@ -0,0 +1,65 @@
+package org.ixxi.bridginess;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Brandes pass with the bridginess accumulators, on hops or on edge weights,
+ * from a fixed set of sources so that the time per operation does not grow
+ * with the square of the graph size. Scale by n / sources for a full run.
+ *
+ * @author MM@IXXI
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BrandesBenchmark {
+
+    @Param({GeneratedGraphs.ERDOS_RENYI, GeneratedGraphs.BARABASI_ALBERT, GeneratedGraphs.PLANTED_PARTITION})
+    public String graph;
+
+    @Param({"10000", "100000"})
+    public int nodes;
+
+    @Param({"10"})
+    public int degree;
+
+    @Param({"256"})
+    public int sources;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean weighted;
+
+    private GraphIndex index;
+    private int[] sourceNodes;
+
+    @Setup
+    public void setUp() {
+        index = GeneratedGraphs.generate(graph, nodes, degree, weighted ? 10 : 1, 42);
+        sourceNodes = GeneratedGraphs.sources(nodes, sources, 42);
+    }
+
+    @Benchmark
+    public Object brandes() {
+        BrandesPass pass = weighted
+                ? new BrandesPass(index, new double[]{3, 4, 5}, new double[]{1}, threads)
+                : new BrandesPass(index, new int[]{3, 4, 5}, new int[]{1}, threads);
+        return pass.run(sourceNodes, null, null);
+    }
+}
@@ -0,0 +1,68 @@
+package org.ixxi.bridginess;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Community aggregation then node entropy and Stirling for every node, the
+ * partition being the planted one (nodes cut in blocks of
+ * {@link GeneratedGraphs#COMMUNITY_SIZE}).
+ *
+ * @author MM@IXXI
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommunityBenchmark {
+
+    @Param({GeneratedGraphs.ERDOS_RENYI, GeneratedGraphs.BARABASI_ALBERT, GeneratedGraphs.PLANTED_PARTITION})
+    public String graph;
+
+    @Param({"10000", "100000", "1000000"})
+    public int nodes;
+
+    @Param({"10"})
+    public int degree;
+
+    @Param({"0", "20"})
+    public int stirlingTopK;
+
+    private GraphIndex index;
+    private int[] community;
+    private int communities;
+
+    @Setup
+    public void setUp() {
+        index = GeneratedGraphs.generate(graph, nodes, degree, 10, 42);
+        community = GeneratedGraphs.communities(nodes);
+        communities = community[nodes - 1] + 1;
+    }
+
+    @Benchmark
+    public Object aggregate() {
+        return CommunityProfile.build(index, community, communities);
+    }
+
+    @Benchmark
+    public void entropyAndStirling(Blackhole blackhole) {
+        CommunityProfile profile = CommunityProfile.build(index, community, communities);
+        for (int v = 0; v < nodes; v++) {
+            blackhole.consume(profile.entropy(v));
+            blackhole.consume(profile.stirling(v, stirlingTopK));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-source {@link DijkstraShortestPathAlgorithmB#compute()} on a
+ * prebuilt index, with a few via-nodes tracked, on the binary or the radix
+ * heap.
+ *
+ * @author MM@IXXI
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DijkstraBenchmark {
+
+    @Param({GeneratedGraphs.ERDOS_RENYI, GeneratedGraphs.BARABASI_ALBERT, GeneratedGraphs.PLANTED_PARTITION})
+    public String graph;
+
+    @Param({"10000", "100000", "1000000"})
+    public int nodes;
+
+    @Param({"10"})
+    public int degree;
+
+    @Param({"false", "true"})
+    public boolean radixHeap;
+
+    @Param({"4"})
+    public int viaNodes;
+
+    private GraphIndex index;
+    private int source;
+    private int[] via;
+
+    @Setup
+    public void setUp() {
+        index = GeneratedGraphs.generate(graph, nodes, degree, 10, 42);
+        int[] picked = GeneratedGraphs.sources(nodes, viaNodes + 1, 42);
+        source = picked[0];
+        via = Arrays.copyOfRange(picked, 1, picked.length);
+    }
+
+    @Benchmark
+    public DijkstraShortestPathAlgorithmB compute() {
+        DijkstraShortestPathAlgorithmB dijkstra = new DijkstraShortestPathAlgorithmB(index, source, null);
+        dijkstra.setRadixHeap(radixHeap);
+        dijkstra.setViaIndices(via);
+        dijkstra.compute();
+        return dijkstra;
+    }
+}
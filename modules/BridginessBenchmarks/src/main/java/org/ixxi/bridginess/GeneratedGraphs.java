@@ -0,0 +1,154 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Seeded random graphs as headless {@link GraphIndex} snapshots, undirected
+ * (every edge listed from both ends) and without self-loops or multi-edges.
+ * The same name, size and seed always give the same graph.
+ *
+ * @author MM@IXXI
+ */
+final class GeneratedGraphs {
+
+    static final String ERDOS_RENYI = "erdos-renyi";
+    static final String BARABASI_ALBERT = "barabasi-albert";
+    static final String PLANTED_PARTITION = "planted-partition";
+
+    //planted partition: communities of this many nodes, this share of edges inside
+    static final int COMMUNITY_SIZE = 100;
+    private static final double INSIDE = 0.8;
+
+    private GeneratedGraphs() {
+    }
+
+    /**
+     * @param name one of {@link #ERDOS_RENYI}, {@link #BARABASI_ALBERT},
+     * {@link #PLANTED_PARTITION}
+     * @param degree average degree
+     * @param maxWeight edge weights are uniform integers in 1..maxWeight
+     */
+    static GraphIndex generate(String name, int n, int degree, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        EdgeList edges = new EdgeList(n);
+        if (ERDOS_RENYI.equals(name)) {
+            long m = (long) n * degree / 2;
+            while (edges.size < m) {
+                edges.add(random.nextInt(n), random.nextInt(n));
+            }
+        } else if (BARABASI_ALBERT.equals(name)) {
+            //preferential attachment, endpoints drawn from the list of edge ends
+            int links = Math.max(1, degree / 2);
+            int[] ends = new int[2 * links * n];
+            int size = 0;
+            for (int v = 1; v <= links && v < n; v++) {
+                for (int u = 0; u < v; u++) {
+                    if (edges.add(u, v)) {
+                        ends[size++] = u;
+                        ends[size++] = v;
+                    }
+                }
+            }
+            for (int v = links + 1; v < n; v++) {
+                int added = 0;
+                for (int tries = 0; added < links && tries < 100 * links; tries++) {
+                    int u = ends[random.nextInt(size)];
+                    if (edges.add(u, v)) {
+                        ends[size++] = u;
+                        ends[size++] = v;
+                        added++;
+                    }
+                }
+            }
+        } else if (PLANTED_PARTITION.equals(name)) {
+            long m = (long) n * degree / 2;
+            while (edges.size < m) {
+                int u = random.nextInt(n);
+                int v;
+                if (random.nextDouble() < INSIDE) {
+                    int first = u - u % COMMUNITY_SIZE;
+                    v = first + random.nextInt(Math.min(COMMUNITY_SIZE, n - first));
+                } else {
+                    v = random.nextInt(n);
+                }
+                edges.add(u, v);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown graph " + name);
+        }
+        return edges.toIndex(maxWeight, random);
+    }
+
+    /**
+     * @return the planted community of each node, also usable on any other
+     * generated graph as an arbitrary partition
+     */
+    static int[] communities(int n) {
+        int[] community = new int[n];
+        for (int v = 0; v < n; v++) {
+            community[v] = v / COMMUNITY_SIZE;
+        }
+        return community;
+    }
+
+    /**
+     * @return <code>count</code> distinct sources drawn with
+     * <code>seed</code>
+     */
+    static int[] sources(int n, int count, long seed) {
+        return SourceSample.uniform(n, Math.min(n, count), new Random(seed)).sources;
+    }
+
+    private static final class EdgeList {
+
+        private final int n;
+        private final HashSet<Long> seen = new HashSet<Long>();
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int size;
+
+        EdgeList(int n) {
+            this.n = n;
+        }
+
+        boolean add(int u, int v) {
+            if (u == v || !seen.add((long) Math.min(u, v) * n + Math.max(u, v))) {
+                return false;
+            }
+            if (size == from.length) {
+                from = Arrays.copyOf(from, 2 * size);
+                to = Arrays.copyOf(to, 2 * size);
+            }
+            from[size] = u;
+            to[size] = v;
+            size++;
+            return true;
+        }
+
+        GraphIndex toIndex(int maxWeight, Random random) {
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+                offsets[to[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] targets = new int[2 * size];
+            float[] weights = new float[2 * size];
+            for (int i = 0; i < size; i++) {
+                float w = 1 + random.nextInt(Math.max(1, maxWeight));
+                int a = fill[from[i]]++;
+                targets[a] = to[i];
+                weights[a] = w;
+                int b = fill[to[i]]++;
+                targets[b] = from[i];
+                weights[b] = w;
+            }
+            return GraphIndex.of(offsets, targets, weights);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.ixxi.bridginess;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full exact Brandes pass on hops, from every node or from the roots of
+ * {@link PendantTrees} only, stripping included. Sparse graphs, where
+ * degree-1 nodes are common.
+ *
+ * @author MM@IXXI
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PruningBenchmark {
+
+    @Param({GeneratedGraphs.ERDOS_RENYI, GeneratedGraphs.PLANTED_PARTITION})
+    public String graph;
+
+    @Param({"5000"})
+    public int nodes;
+
+    @Param({"3"})
+    public int degree;
+
+    @Param({"false", "true"})
+    public boolean pruned;
+
+    private static final int[] LENGTHS = {3, 4, 5};
+    private static final int[] RADII = {1};
+
+    private GraphIndex index;
+    private int[] allNodes;
+
+    @Setup
+    public void setUp() {
+        index = GeneratedGraphs.generate(graph, nodes, degree, 1, 42);
+        allNodes = new int[nodes];
+        for (int v = 0; v < nodes; v++) {
+            allNodes[v] = v;
+        }
+    }
+
+    @Benchmark
+    public Object brandes() {
+        PendantTrees trees = pruned ? PendantTrees.strip(index, PendantTrees.levels(LENGTHS, RADII)) : null;
+        if (trees == null) {
+            return new BrandesPass(index, LENGTHS, RADII, 1).run(allNodes, null, null);
+        }
+        return new BrandesPass(trees, LENGTHS, RADII, 1).run(trees.sources, null, null);
+    }
+}
@@ -0,0 +1,76 @@
+package org.ixxi.bridginess;
+
+/**
+ * Per-node sums of the Brandes pass: betweenness, one BridginessMSP array
+ * per minimum path length and one BridginessEXN array per exclusion radius.
+ *
+ * @author MM@IXXI
+ */
+final class Accumulators {
+
+    final double[] betweenness;
+    final double[][] bridginessMSP;
+    final double[][] bridginessEXN;
+    long shortestPaths;
+    long edgesRelaxed;
+
+    Accumulators(int n, int minPathLengths, int exclRadii) {
+        betweenness = new double[n];
+        bridginessMSP = new double[minPathLengths][n];
+        bridginessEXN = new double[exclRadii][n];
+    }
+
+    /**
+     * Adds these sums to <code>total</code> and clears them.
+     */
+    void foldInto(Accumulators total) {
+        fold(betweenness, total.betweenness);
+        for (int k = 0; k < bridginessMSP.length; k++) {
+            fold(bridginessMSP[k], total.bridginessMSP[k]);
+        }
+        for (int k = 0; k < bridginessEXN.length; k++) {
+            fold(bridginessEXN[k], total.bridginessEXN[k]);
+        }
+        total.shortestPaths += shortestPaths;
+        total.edgesRelaxed += edgesRelaxed;
+        shortestPaths = 0;
+        edgesRelaxed = 0;
+    }
+
+    private static void fold(double[] from, double[] into) {
+        for (int i = 0; i < from.length; i++) {
+            into[i] += from[i];
+            from[i] = 0;
+        }
+    }
+
+    Accumulators copy() {
+        Accumulators copy = new Accumulators(betweenness.length, bridginessMSP.length, bridginessEXN.length);
+        System.arraycopy(betweenness, 0, copy.betweenness, 0, betweenness.length);
+        for (int k = 0; k < bridginessMSP.length; k++) {
+            System.arraycopy(bridginessMSP[k], 0, copy.bridginessMSP[k], 0, betweenness.length);
+        }
+        for (int k = 0; k < bridginessEXN.length; k++) {
+            System.arraycopy(bridginessEXN[k], 0, copy.bridginessEXN[k], 0, betweenness.length);
+        }
+        copy.shortestPaths = shortestPaths;
+        copy.edgesRelaxed = edgesRelaxed;
+        return copy;
+    }
+
+    void scale(double factor) {
+        scale(betweenness, factor);
+        for (double[] values : bridginessMSP) {
+            scale(values, factor);
+        }
+        for (double[] values : bridginessEXN) {
+            scale(values, factor);
+        }
+    }
+
+    private static void scale(double[] values, double factor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+}
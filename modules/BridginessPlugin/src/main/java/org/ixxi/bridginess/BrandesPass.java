@@ -0,0 +1,350 @@
+package org.ixxi.bridginess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.gephi.utils.progress.Progress;
+import org.gephi.utils.progress.ProgressTicket;
+
+/**
+ * All-sources Brandes pass on a fixed pool of workers, each one owning its
+ * own {@link SourceKernel}: {@link BridginessKernel} on hops,
+ * {@link WeightedBridginessKernel} on edge weights or
+ * {@link MappedBridginessKernel} on hops over a memory-mapped graph or
+ * {@link PrunedBridginessKernel} on hops over the core of a graph stripped
+ * of its hanging trees.
+ * <p>
+ * Sources are cut into chunks whose boundaries only depend on the number of
+ * sources, and chunk partials are folded into the total in chunk order, so
+ * the result is bit-for-bit the same whatever the thread count. A halted
+ * pass drops the chunks it did not finish and every chunk after the first
+ * of them, so the sums always cover a prefix of the sources.
+ *
+ * @author MM@IXXI
+ */
+final class BrandesPass {
+
+    /**
+     * Receives copies of the running sums while the pass goes on.
+     */
+    interface Listener {
+
+        /**
+         * Called from the thread running the pass every publish interval,
+         * with the sums of the first <code>done</code> sources.
+         *
+         * @return false to stop the pass and keep the sums so far
+         */
+        boolean partial(Accumulators sums, int done);
+    }
+
+    private static final int CHUNKS = 1024;
+
+    private final GraphIndex index;
+    //instead of index, null for heap graphs
+    private final MappedGraph mapped;
+    //index stripped of its hanging trees, null for none
+    private final PendantTrees trees;
+    private final int n;
+    private final int[] minPathLengths;
+    private final int[] exclRadii;
+    //weighted thresholds, null for hop counts
+    private final double[] weightedLengths;
+    private final double[] weightedRadii;
+    private final int threads;
+    private volatile boolean halted;
+    private volatile boolean canceled;
+    //summed over the workers of the last run, -1 if unmeasurable
+    private final AtomicLong workerCpu = new AtomicLong();
+    private final AtomicLong workerAllocated = new AtomicLong();
+
+    //ordered reduction state, guarded by lock
+    private final Object lock = new Object();
+    private int folded;
+    private int completed;
+    //first chunk left out of the total, chunks from it on are dropped
+    private int cut;
+    private boolean aborted;
+
+    BrandesPass(GraphIndex index, int[] minPathLengths, int[] exclRadii, int threads) {
+        this.index = index;
+        this.mapped = null;
+        this.trees = null;
+        this.n = index.getNodeCount();
+        this.minPathLengths = minPathLengths;
+        this.exclRadii = exclRadii;
+        this.weightedLengths = null;
+        this.weightedRadii = null;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Weighted pass, thresholds and radii in weight units.
+     */
+    BrandesPass(GraphIndex index, double[] minPathLengths, double[] exclRadii, int threads) {
+        this.index = index;
+        this.mapped = null;
+        this.trees = null;
+        this.n = index.getNodeCount();
+        this.minPathLengths = null;
+        this.exclRadii = null;
+        this.weightedLengths = minPathLengths;
+        this.weightedRadii = exclRadii;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Hop count pass over a memory-mapped graph.
+     */
+    BrandesPass(MappedGraph graph, int[] minPathLengths, int[] exclRadii, int threads) {
+        this.index = null;
+        this.mapped = graph;
+        this.trees = null;
+        this.n = graph.getNodeCount();
+        this.minPathLengths = minPathLengths;
+        this.exclRadii = exclRadii;
+        this.weightedLengths = null;
+        this.weightedRadii = null;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Hop count pass over the core of <code>trees</code>, sources among
+     * {@link PendantTrees#sources} standing for their hanging trees.
+     */
+    BrandesPass(PendantTrees trees, int[] minPathLengths, int[] exclRadii, int threads) {
+        this.index = trees.core;
+        this.mapped = null;
+        this.trees = trees;
+        this.n = trees.core.getNodeCount();
+        this.minPathLengths = minPathLengths;
+        this.exclRadii = exclRadii;
+        this.weightedLengths = null;
+        this.weightedRadii = null;
+        this.threads = Math.max(1, threads);
+    }
+
+    private SourceKernel newKernel() {
+        if (mapped != null) {
+            return new MappedBridginessKernel(mapped, minPathLengths, exclRadii);
+        }
+        if (trees != null) {
+            return new PrunedBridginessKernel(trees, minPathLengths, exclRadii);
+        }
+        if (weightedLengths != null) {
+            return new WeightedBridginessKernel(index, weightedLengths, weightedRadii);
+        }
+        return new BridginessKernel(index, minPathLengths, exclRadii);
+    }
+
+    /**
+     * Stops the workers, {@link #run} returns <code>null</code>.
+     */
+    void cancel() {
+        canceled = true;
+        halted = true;
+    }
+
+    /**
+     * Stops the workers, {@link #run} returns the sums of the sources
+     * completed so far.
+     */
+    void stop() {
+        halted = true;
+    }
+
+    boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * @return the number of sources summed by the last {@link #run}
+     */
+    int getCompletedSources() {
+        synchronized (lock) {
+            return completed;
+        }
+    }
+
+    /**
+     * @return CPU time of the workers of the last {@link #run}, -1 if the
+     * JVM cannot measure it
+     */
+    long getWorkerCpuNanos() {
+        return workerCpu.get();
+    }
+
+    /**
+     * @return bytes allocated by the workers of the last {@link #run}, -1
+     * if the JVM cannot measure it
+     */
+    long getWorkerAllocatedBytes() {
+        return workerAllocated.get();
+    }
+
+    Accumulators run(int[] sources, double[] scales, ProgressTicket progress) {
+        return run(sources, scales, progress, null, 0);
+    }
+
+    /**
+     * Runs the traversal from every node of <code>sources</code> and returns
+     * the summed accumulators, or <code>null</code> if canceled.
+     *
+     * @param scales per-source multipliers, <code>null</code> for 1
+     * @param listener gets partial sums every <code>publishMillis</code>,
+     * may be <code>null</code>
+     */
+    Accumulators run(final int[] sources, final double[] scales, final ProgressTicket progress,
+            Listener listener, long publishMillis) {
+        final SourceKernel first = newKernel();
+        final Accumulators total = new Accumulators(n,
+                first.sums.bridginessMSP.length, first.sums.bridginessEXN.length);
+        final int chunkSize = Math.max(1, (sources.length + CHUNKS - 1) / CHUNKS);
+        final int chunks = (sources.length + chunkSize - 1) / chunkSize;
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger started = new AtomicInteger();
+        synchronized (lock) {
+            folded = 0;
+            completed = 0;
+            cut = chunks;
+            aborted = false;
+        }
+        workerCpu.set(0);
+        workerAllocated.set(0);
+
+        int workers = Math.min(threads, Math.max(1, chunks));
+        ExecutorService pool = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger created = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Bridginess worker " + created.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long cpu = PhaseProfile.cpuTime();
+                    long allocated = PhaseProfile.allocatedBytes();
+                    SourceKernel local = started.getAndIncrement() == 0 ? first : newKernel();
+                    try {
+                        int c;
+                        while (!halted && (c = next.getAndIncrement()) < chunks) {
+                            int start = c * chunkSize;
+                            int end = Math.min(sources.length, start + chunkSize);
+                            int k = start;
+                            for (; k < end && !halted; k++) {
+                                local.source(sources[k], scales == null ? 1 : scales[k]);
+                            }
+                            if (k < end) {
+                                //halted halfway, the partial sums are left out
+                                drop(c);
+                                break;
+                            }
+                            fold(c, local.sums, total, k - start, progress);
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        abort();
+                    } catch (RuntimeException ex) {
+                        abort();
+                        throw ex;
+                    } catch (Error ex) {
+                        abort();
+                        throw ex;
+                    } finally {
+                        addUsage(workerCpu, cpu, PhaseProfile.cpuTime());
+                        addUsage(workerAllocated, allocated, PhaseProfile.allocatedBytes());
+                    }
+                }
+            }));
+        }
+        pool.shutdown();
+
+        try {
+            long wait = listener == null ? 1000 : Math.max(1, publishMillis);
+            while (!pool.awaitTermination(wait, TimeUnit.MILLISECONDS)) {
+                if (listener == null) {
+                    continue;
+                }
+                Accumulators partial;
+                int done;
+                synchronized (lock) {
+                    partial = total.copy();
+                    done = completed;
+                }
+                if (done > 0 && !listener.partial(partial, done)) {
+                    stop();
+                }
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            abort();
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            pool.shutdownNow();
+            throw new RuntimeException(ex.getCause());
+        }
+
+        return canceled ? null : total;
+    }
+
+    private void fold(int chunk, Accumulators local, Accumulators total, int sourcesDone,
+            ProgressTicket progress) throws InterruptedException {
+        synchronized (lock) {
+            while (folded != chunk && chunk < cut && !aborted) {
+                lock.wait();
+            }
+            if (aborted || chunk >= cut) {
+                return;
+            }
+            local.foldInto(total);
+            folded++;
+            completed += sourcesDone;
+            Progress.progress(progress, completed);
+            lock.notifyAll();
+        }
+    }
+
+    //leaves the chunk and every later one out of the total
+    private void drop(int chunk) {
+        synchronized (lock) {
+            cut = Math.min(cut, chunk);
+            lock.notifyAll();
+        }
+    }
+
+    private static void addUsage(AtomicLong sum, long start, long end) {
+        if (start < 0 || end < 0) {
+            sum.set(-1);
+            return;
+        }
+        long current;
+        do {
+            current = sum.get();
+        } while (current >= 0 && !sum.compareAndSet(current, current + end - start));
+    }
+
+    private void abort() {
+        cancel();
+        synchronized (lock) {
+            aborted = true;
+            lock.notifyAll();
+        }
+    }
+}
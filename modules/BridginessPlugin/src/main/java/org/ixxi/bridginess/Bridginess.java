@@ -1,27 +1,27 @@
 package org.ixxi.bridginess;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import static java.lang.Boolean.FALSE;
-import static java.lang.Math.log;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.data.attributes.api.AttributeOrigin;
-import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeType;
-import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
+import org.gephi.project.api.ProjectController;
+import org.gephi.project.api.Workspace;
 import org.gephi.statistics.plugin.ChartUtils;
 
 import org.gephi.statistics.spi.Statistics;
@@ -49,24 +49,27 @@ import org.openide.util.Exceptions;
 public class Bridginess implements Statistics, LongTask {
     
     public static final String BETWEENNESS = "betweenness"; //betweenness centrality
-    //public static final String BRIDGINESSMSP = "bridginessmsp"; //minimum SPs
-    public static final String BRIDGINESSMSP3 = "bridginessmsp3"; //minimum len 3 SPs
-    public static final String BRIDGINESSMSP4 = "bridginessmsp4"; //minimum len 4 SPs
-    public static final String BRIDGINESSMSP5 = "bridginessmsp5"; //minimum len 5 SPs
-    public static final String BRIDGINESSEXN = "bridginessexn"; //exclude neighbors
+    public static final String BRIDGINESSMSP = "bridginessmsp"; //minimum len k SPs, suffixed with k
+    public static final String BRIDGINESSEXN = "bridginessexn"; //exclude neighbors, suffixed with k beyond 1 hop
     
     public static final String NODEENTROPY = "nodeentropy";
     public static final String STIRLING = "nodestirling";
     
     //from "gephi-0.8.2/modules/StatisticsPlugin/src/main/java/org/gephi/statistics/plugin/Modularity.java"
     public static final String MODULARITY_CLASS = "modularity_class";
+    
+    private static final Logger LOG = Logger.getLogger(Bridginess.class.getName());
+
+    private static final int STRATA = 8; //degree strata for stratified sampling
+    private static final long PUBLISH_MILLIS = 10000; //anytime estimates refresh
+    private static final long MIN_PUBLISH_MILLIS = 250;
     //* */
     private double[] betweenness;
-    //private double[] bridginessMSP;
-    private double[] bridginessMSP3;
-    private double[] bridginessMSP4;
-    private double[] bridginessMSP5;
-    private double[] bridginessEXN;
+    private double[][] bridginessMSP; //one per minPathLengths entry
+    private double[][] bridginessEXN; //one per exclNeighbors entry
+    private String[] mspRunLabels = new String[0]; //thresholds of bridginessMSP, as the run labelled them
+    private String[] exnRunLabels = new String[0]; //radii of bridginessEXN
+    private String reportCharts; //charts of the last run, rendered by the first report
     
     private double[] nodeentropy; 
     private double[] stirling;
@@ -81,13 +84,71 @@ public class Bridginess implements Statistics, LongTask {
     
     private ProgressTicket progress;
     
-    private boolean isCanceled;
-    private int shortestPaths;
+    private volatile boolean isCanceled;
+    private volatile BrandesPass pass;
+    private long shortestPaths;
+    private PhaseProfile phases; //timings and counters of the last run
     //private boolean isNormalized; //let's forget normalization for now
     
   
-    private int exclNeighbors; //neighbors bridginess
-    private int minPathLength; //path bridginess
+    private int[] exclNeighbors = {1}; //neighbors bridginess, radii in hops
+    private int[] minPathLengths = {3, 4, 5}; //path bridginess
+    private double[] weightedExclNeighbors = {1}; //radii of weighted runs, in weight units
+    private double[] weightedMinPathLengths = {3, 4, 5}; //thresholds of weighted runs
+    private boolean weighted; //Dijkstra on edge weights, thresholds in weight units
+    private String partitionColumn = MODULARITY_CLASS; //communities for entropy and Stirling
+    private int communities;
+    private int stirlingTopK; //heaviest communities per node in Stirling, 0 for all
+    private int threads = Runtime.getRuntime().availableProcessors(); //Brandes workers
+    
+    private boolean approximate; //sampled sources instead of all of them
+    private boolean stratified; //sample within degree strata
+    private double targetError = 0.01; //relative to N * (N - 2)
+    private double confidence = 0.95;
+    private long seed = 42;
+    private int sampledSources; //0 for exact runs
+    private double errorBound;
+    
+    private boolean anytime; //random source order, partial estimates published
+    private long timeBudget; //anytime wall-clock budget in ms, 0 for none
+    private double tolerance = 0.001; //anytime convergence, relative L1 change
+
+    private boolean incremental; //refresh the previous exact run instead of starting over
+    private IncrementalBrandes previousRun; //sums and snapshot of the previous exact run
+    private int rerunSources = -1; //sources re-run by the last incremental refresh
+
+    private int cacheSize = 4; //result sets kept per workspace, 0 for none
+    private ResultCache localCache; //outside of any workspace
+    private PartitionMapping localMapping; //outside of any workspace
+    private boolean cacheHit; //last run reused stored arrays
+
+    private File checkpointFile; //partial sums saved there, null for none
+    private long checkpointInterval = 300000; //ms between checkpoints
+    private boolean resume; //start from the checkpoint when it matches
+    private int resumedSources; //sources taken from the checkpoint by the last run
+
+    private boolean pruneTrees = true; //fold hanging trees into their roots, exact undirected hops
+    private int prunedNodes; //tree nodes the last run did not traverse from
+    
+    //metrics computed at all
+    private boolean computeBetweenness = true;
+    private boolean computeMSP = true;
+    private boolean computeEXN = true;
+    private boolean computeEntropy = true;
+    private boolean computeStirling = true;
+    //columns written back, the others are computed for the report only
+    private boolean writeBetweenness = true;
+    private boolean writeMSP = true;
+    private boolean writeEXN = true;
+    private boolean writeEntropy = true;
+    private boolean writeStirling = true;
+    
+    //null when not written
+    private AttributeColumn betweennessCol;
+    private AttributeColumn[] bridginessMSPCols;
+    private AttributeColumn[] bridginessEXNCols;
+    private AttributeColumn nodeentropyCol;
+    private AttributeColumn stirlingCol;
     
 
     public Bridginess() {
@@ -117,424 +178,695 @@ public class Bridginess implements Statistics, LongTask {
   public void execute(HierarchicalGraph hgraph, AttributeModel am) {
         
         isCanceled = false;
-        AttributeTable nodetable = am.getNodeTable();
-        AttributeColumn betweennessCol = nodetable.getColumn(BETWEENNESS);
-        //AttributeColumn bridginessMSPCol = nodetable.getColumn(BRIDGINESSMSP);
-        AttributeColumn bridginessMSPCol3 = nodetable.getColumn(BRIDGINESSMSP3);
-        AttributeColumn bridginessMSPCol4 = nodetable.getColumn(BRIDGINESSMSP4);
-        AttributeColumn bridginessMSPCol5 = nodetable.getColumn(BRIDGINESSMSP5);
-        AttributeColumn bridginessEXNCol = nodetable.getColumn(BRIDGINESSEXN);
-        AttributeColumn nodeentropyCol = nodetable.getColumn(NODEENTROPY);
-        AttributeColumn stirlingCol = nodetable.getColumn(STIRLING);
-        
-        if (betweennessCol == null) {
-            betweennessCol = nodetable.addColumn(BETWEENNESS, "Betweenness", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
-        }
-
-        //if (bridginessMSPCol == null) {
-        //    bridginessMSPCol = nodetable.addColumn(BRIDGINESSMSP, "BridginessMSP", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
-        //}
-        if (bridginessMSPCol3 == null) {
-            bridginessMSPCol3 = nodetable.addColumn(BRIDGINESSMSP3, "BridginessMSP3", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
-        }
-        if (bridginessMSPCol4 == null) {
-            bridginessMSPCol4 = nodetable.addColumn(BRIDGINESSMSP4, "BridginessMSP4", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
-        }
-        if (bridginessMSPCol5 == null) {
-            bridginessMSPCol5 = nodetable.addColumn(BRIDGINESSMSP5, "BridginessMSP5", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
-        }
+        //metrics left out get no column, no array and no pass
+        int[] lengths = computeMSP ? minPathLengths : new int[0];
+        int[] radii = computeEXN ? exclNeighbors : new int[0];
+        //the thresholds of this run, weighted or not, as column ids name them
+        String[] mspLabels = computeMSP ? mspLabels() : new String[0];
+        String[] exnLabels = computeEXN ? exnLabels() : new String[0];
+        boolean paths = computeBetweenness || mspLabels.length > 0 || exnLabels.length > 0;
+        boolean partition = computeEntropy || computeStirling;
         
-        if (bridginessEXNCol == null) {
-            bridginessEXNCol = nodetable.addColumn(BRIDGINESSEXN, "BridginessEXN", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
-        }
-        if (nodeentropyCol == null) {
-            nodeentropyCol = nodetable.addColumn(NODEENTROPY, "nodeentropy", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
+        AttributeTable nodetable = am.getNodeTable();
+        betweennessCol = writeBetweenness && computeBetweenness ? column(nodetable, BETWEENNESS, "Betweenness") : null;
+        bridginessMSPCols = new AttributeColumn[mspLabels.length];
+        bridginessEXNCols = new AttributeColumn[exnLabels.length];
+        for (int k = 0; writeMSP && k < mspLabels.length; k++) {
+            bridginessMSPCols[k] = column(nodetable, BRIDGINESSMSP + mspLabels[k], "BridginessMSP" + mspLabels[k]);
         }
-        if (stirlingCol == null) {
-            stirlingCol = nodetable.addColumn(STIRLING, "nodestirling", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
+        for (int k = 0; writeEXN && k < exnLabels.length; k++) {
+            String suffix = exnSuffix(exnLabels[k]);
+            bridginessEXNCols[k] = column(nodetable, BRIDGINESSEXN + suffix, "BridginessEXN" + suffix);
         }
+        nodeentropyCol = writeEntropy && computeEntropy ? column(nodetable, NODEENTROPY, "nodeentropy") : null;
+        stirlingCol = writeStirling && computeStirling ? column(nodetable, STIRLING, "nodestirling") : null;
  
 
+        phases = new PhaseProfile();
+        reportCharts = null;
+        mspRunLabels = mspLabels;
+        exnRunLabels = exnLabels;
         hgraph.readLock();
         
         N = hgraph.getNodeCount();
         
-        betweenness = new double[N];
-        //bridginessMSP = new double[N];
-        bridginessMSP3 = new double[N];
-        bridginessMSP4 = new double[N];
-        bridginessMSP5 = new double[N];
-        bridginessEXN = new double[N];
-        
-        nodeentropy = new double[N];
-        stirling = new double[N];
-        //shortestPaths = 0;
+        betweenness = null;
+        bridginessMSP = null;
+        bridginessEXN = null;
+        nodeentropy = computeEntropy ? new double[N] : null;
+        stirling = computeStirling ? new double[N] : null;
+        shortestPaths = 0;
+        communities = 0;
+        sampledSources = 0;
+        errorBound = 0;
+        rerunSources = -1;
+        cacheHit = false;
+        resumedSources = 0;
+        prunedNodes = 0;
        
-        //System.out.println("Params: minPathLength " + minPathLength);
-        //System.out.println("Params: exclNeighbors " + exclNeighbors);
-
-        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>();
-        int index = 0;
-        for (Node s : hgraph.getNodes()) {
-            indicies.put(s, index);
-            index++;
-        }
-        
-        Progress.start(progress, hgraph.getNodeCount());
-        int count = 0;
-        
-        //entropy
-        //count communities pop.
-        HashMap<Integer, Integer> communityPop = new HashMap<Integer, Integer>();
-        HashMap<Integer, LinkedList<Node>> communityNodes = new HashMap<Integer, LinkedList<Node>>();
-                      
-        for (Node s : hgraph.getNodes()) {
-            Integer community = (Integer) s.getNodeData().getAttributes().getValue(MODULARITY_CLASS);
-            if (communityPop.containsKey(community)) {
-                Integer freq = communityPop.get(community);
-                freq += 1;
-                communityPop.put(community, freq);
-                //insert member node in existing community                
-                communityNodes.get(community).addLast(s);
+        phases.begin("Index build");
+        //one-time CSR snapshot, the Brandes pass below runs on it without the lock
+        GraphIndex index = GraphIndex.build(hgraph, isDirected);
+        //exact hop counts only, on the nodes of the previous run in its order
+        boolean refreshable = incremental && paths && !weighted && !approximate && !anytime;
+        if (!refreshable || previousRun == null || !previousRun.accepts(lengths, radii, isDirected)) {
+            previousRun = null;
+        } else {
+            GraphIndex aligned = previousRun.align(index);
+            if (aligned == null) {
+                previousRun = null;
             } else {
-                communityPop.put(community, 1);
-                //insert member node in not yet existing list
-                LinkedList<Node> ll = new LinkedList<Node>();
-                communityNodes.put(community, ll);
-                communityNodes.get(community).addLast(s);
+                index = aligned;
             }
         }
+        endPhase(N + " nodes, " + index.getEdgeCount() + " arcs");
+        phases.count("Nodes", N);
+        phases.count("Arcs", index.getEdgeCount());
         
-        Integer communityNum = communityPop.size();
-        System.out.println(communityNum + " communities found.");
-        
-        Double communityDistance[][] = new Double[communityNum][communityNum];
-        Double communityDistanceInverse[][] = new Double[communityNum][communityNum];
-        
-        //initialize distances;
-        //WARNING: presumes communities #0, #1, #2...#N (no gaps)
-        for (int sComm = 0; sComm < communityNum; sComm++) {
-            for (int tComm = 0; tComm < communityNum; tComm++) {
-                communityDistance[sComm][tComm] = Double.POSITIVE_INFINITY;   
-                communityDistanceInverse[sComm][tComm] = 0.0;   
+        Progress.start(progress, N);
+
+        //any partition column, remapped to dense ids
+        int[] community = null;
+        if (partition) {
+            AttributeColumn partitionCol = nodetable.getColumn(partitionColumn);
+            community = new int[N];
+            Arrays.fill(community, -1);
+            if (partitionCol != null) {
+                community = partitionMapping(partitionCol).assign(index);
+            }
+        }
+
+        //same graph and settings as a stored run: its arrays, nothing computed
+        ResultCache cache = null;
+        String cacheKey = null;
+        if (cacheSize > 0 && !anytime) {
+            phases.begin("Cache lookup");
+            cache = cache();
+            cacheKey = cacheKey(hgraph, index, community, mspLabels, exnLabels);
+            ResultCache.Entry hit = cache.get(cacheKey);
+            endPhase(hit == null ? "miss" : "hit");
+            if (hit != null) {
+                hgraph.readUnlock();
+                betweenness = hit.betweenness;
+                bridginessMSP = hit.bridginessMSP;
+                bridginessEXN = hit.bridginessEXN;
+                mspRunLabels = hit.mspLabels;
+                exnRunLabels = hit.exnLabels;
+                nodeentropy = hit.nodeentropy;
+                stirling = hit.stirling;
+                communities = hit.communities;
+                shortestPaths = hit.shortestPaths;
+                sampledSources = hit.sampledSources;
+                errorBound = hit.errorBound;
+                cacheHit = true;
+                phases.begin("Attribute write back");
+                long cells = writeColumns(index);
+                endPhase(cells + " cells changed");
+                phases.count("Cells written", cells);
+                Progress.finish(progress);
+                return;
             }
         }
-  
         
-        for (Node s : hgraph.getNodes()) {
-            Integer sComm = (Integer) s.getNodeData().getAttributes().getValue(MODULARITY_CLASS);
-            for (Node t : hgraph.getNeighbors(s)) {
-                Integer tComm = (Integer) t.getNodeData().getAttributes().getValue(MODULARITY_CLASS);
-                //same community, not interesting
+        if (partition) {
+            //entropy and Stirling, one sweep over the snapshot
+            phases.begin("Community aggregation");
+            for (int c : community) {
+                communities = Math.max(communities, c + 1);
+            }
+            CommunityProfile profile = CommunityProfile.build(index, community, communities);
+            endPhase(communities + " communities");
+            phases.count("Communities", communities);
+            phases.count("Community pairs", profile.interIds.length);
+            if (LOG.isLoggable(Level.FINEST)) {
+                for (int c = 0; c < communities; c++) {
+                    for (int i = profile.interOffsets[c]; i < profile.interOffsets[c + 1]; i++) {
+                        LOG.log(Level.FINEST, "communities {0} to {1}: weight {2}",
+                                new Object[]{c, profile.interIds[i], profile.interWeights[i]});
+                    }
+                }
+            }
 
-                if (sComm.intValue() == tComm.intValue()) {
+            phases.begin("Entropy and Stirling");
+            for (int v = 0; v < N; v++) {
+                if (community[v] < 0) {
                     continue;
                 }
-                
-                double wl_st = (double) hgraph.getEdge(s, t).getWeight();
-                System.out.println("sc " + sComm + " tc " + tComm + " wl_st " + wl_st);
-                
-                communityDistanceInverse[sComm][tComm] += wl_st;
+                if (computeEntropy) {
+                    nodeentropy[v] = profile.entropy(v);
+                }
+                if (computeStirling) {
+                    stirling[v] = profile.stirling(v, stirlingTopK);
+                }
             }
+            endPhase(N + " nodes");
         }
+        hgraph.readUnlock();
 
-        for (int sComm = 0; sComm < communityNum; sComm++) {
-            for (int tComm = 0; tComm < communityNum; tComm++) {
-                communityDistance[sComm][tComm] = 1/communityDistanceInverse[sComm][tComm];
-                System.out.println("commdist: s " + sComm + " t " + tComm + " dist: " + communityDistance[sComm][tComm]);
+        Accumulators sums = null;
+        int done = 0;
+        if (paths && previousRun != null) {
+            sums = refresh(index, lengths, radii);
+            if (isCanceled) {
+                writeResults(index, null, 0);
+                return;
             }
+            done = sums == null ? 0 : N;
         }
-
-        
-        
-        
-        for (Node s : hgraph.getNodes()) { 
-            
-           Integer sCommunity = (Integer) s.getNodeData().getAttributes().getValue(MODULARITY_CLASS);
-        
-           //ignore nodes from small communities
-           //if (communityPop.get(sCommunity) < 100) {
-           //    continue;
-           //}
-                      
-           HashMap<Integer, Double> weightsByCommunity = new HashMap<Integer, Double>();           
-           Double nodeLocalWeights = 0d;
-           Double nodeTotalWeights = 0d;
-           
-           for (Node t : hgraph.getNeighbors(s)) {
-                if (s == t) {
-                    continue;
+        if (paths && sums == null) {
+            //Brandes 2001----    
+            int[] sources = null;
+            double[] scales = null;
+            int m = approximate ? SourceSample.sampleSize(N, targetError, 1 - confidence) : N;
+            if (anytime) {
+                //random order, so that the sources done so far are a uniform sample
+                sources = SourceSample.uniform(N, N, new Random(seed)).sources;
+            } else if (m < N) {
+                //pivot sampling, Brandes & Pich 2007
+                Random random = new Random(seed);
+                SourceSample sample = stratified
+                        ? SourceSample.degreeStratified(index, m, STRATA, random)
+                        : SourceSample.uniform(N, m, random);
+                sources = sample.sources;
+                scales = sample.scales;
+                sampledSources = sources.length;
+                errorBound = sample.errorBound(N, 1 - confidence) / (isDirected ? 1 : 2);
+                Progress.switchToDeterminate(progress, sampledSources);
+            } else {
+                sources = new int[N];
+                for (int s = 0; s < N; s++) {
+                    sources[s] = s;
                 }
-               
-                Integer tCommunity = (Integer) t.getNodeData().getAttributes().getValue(MODULARITY_CLASS);                
-                Double weight = (double) hgraph.getEdge(s, t).getWeight();
-
-                //overall weights (for normalization)
-                nodeTotalWeights += weight;
-                
-                //compute cumulated weights per community
-                
-                if (sCommunity.intValue() == tCommunity.intValue()) {
-                    nodeLocalWeights += weight;
-                } else 
-                    if (weightsByCommunity.containsKey(tCommunity)) {
-                        Double oldWBC = weightsByCommunity.get(tCommunity);
-                        weightsByCommunity.put(tCommunity, oldWBC + weight);
-                    } else {
-                        weightsByCommunity.put(tCommunity, weight);
-                    }
+            }
+            //hanging trees are traversed from their roots only
+            PendantTrees trees = null;
+            if (pruneTrees && !isDirected && !weighted && !anytime && sampledSources == 0) {
+                phases.begin("Tree pruning");
+                trees = PendantTrees.strip(index, PendantTrees.levels(lengths, radii));
+                if (trees != null) {
+                    sources = trees.sources;
+                    prunedNodes = trees.stripped;
+                    Progress.switchToDeterminate(progress, sources.length);
                 }
-
-           
-                     
-           Double nodeEntropy = 0.;
-           for (Map.Entry<Integer, Double> entry : weightsByCommunity.entrySet()) {
-                              
-               Integer comm = entry.getKey();
-               System.out.println("comm " + comm + " size " + communityPop.get(comm));
-               if (communityPop.get(comm) < 0) {
-                   continue;
-               }
-
-               Double commWeights = entry.getValue();
-              
-               //System.out.println("commweights " + commWeights + " nodelocalweights " + nodeLocalWeights);
-               
-               Double p_iJ = commWeights/(commWeights+nodeLocalWeights);
-               
-               //System.out.println("p_iJ " + p_iJ);
-               
-               nodeEntropy += (p_iJ) * (Double) log(p_iJ);
-            }
-
-          
-           Double nodeStirling = 0.;
-           
-           Iterator comm1iter = weightsByCommunity.entrySet().iterator();
-           while (comm1iter.hasNext()) {
-           
-               Map.Entry comm1entry = (Map.Entry) comm1iter.next();
-               Integer comm1 = (Integer) comm1entry.getKey();
-               
-               Double p_iJ1= (Double) comm1entry.getValue();
-
-               Iterator comm2iter = weightsByCommunity.entrySet().iterator();
-               
-                   Map.Entry comm2entry = (Map.Entry) comm2iter.next();
-                   Integer comm2 = (Integer) comm2entry.getKey();
-                            
-                   if (comm1.intValue() == comm2.intValue()) {
-                       continue;
-                   }
-                 
-                   Double p_iJ2 = (Double) comm2entry.getValue();
-                   Double d_j1j2 = (double) communityDistance[comm1.intValue()][comm2.intValue()];
-                   
-                   nodeStirling += (p_iJ1 * p_iJ2 * d_j1j2);
-               }    
-
-           AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
-           row.setValue(nodeentropyCol, nodeEntropy);
-           row.setValue(stirlingCol, nodeStirling);
-        }
-
-        
-/*
-        //Brandes 2001----    
-        for (Node s : hgraph.getNodes()) {
-            Stack<Node> S = new Stack<Node>();
-            //System.out.println("###### s is "+s);
-
-            LinkedList<Node>[] P = new LinkedList[N];
-            double[] theta = new double[N];
-            int[] d = new int[N];
-            for (int j = 0; j < N; j++) {
-                P[j] = new LinkedList<Node>();
-                theta[j] = 0;
-                d[j] = -1;
-            }
-
-            int s_index = indicies.get(s);
-
-            theta[s_index] = 1;
-            d[s_index] = 0;
-
-            LinkedList<Node> Q = new LinkedList<Node>();
-            Q.addLast(s);
-            while (!Q.isEmpty()) {
-                Node v = Q.removeFirst();
-                S.push(v);
-                int v_index = indicies.get(v);
-
-                EdgeIterable edgeIter = null;
-                if (isDirected) {
-                    edgeIter = ((HierarchicalDirectedGraph) hgraph).getOutEdgesAndMetaOutEdges(v);
-                } else {
-                    edgeIter = hgraph.getEdgesAndMetaEdges(v);
+                endPhase(prunedNodes + " nodes in " + (trees == null ? 0 : trees.getRootCount()) + " trees");
+                phases.count("Nodes pruned", prunedNodes);
+            }
+            if (weighted) {
+                for (float w : index.weights) {
+                    //zero weights tie nodes already settled, their paths would go uncounted
+                    if (!(w > 0)) {
+                        throw new IllegalArgumentException("Weighted bridginess needs positive edge weights");
+                    }
                 }
+                pass = new BrandesPass(index, computeMSP ? weightedMinPathLengths : new double[0],
+                        computeEXN ? weightedExclNeighbors : new double[0], threads);
+            } else if (trees != null) {
+                pass = new BrandesPass(trees, lengths, radii, threads);
+            } else {
+                pass = new BrandesPass(index, lengths, radii, threads);
+            }
+            if (isCanceled) {
+                writeResults(index, null, 0);
+                return;
+            }
 
-                for (Edge edge : edgeIter) {
-                    Node reachable = hgraph.getOpposite(v, edge);
-
-                    int r_index = indicies.get(reachable);
-                    if (d[r_index] < 0) {
-                        Q.addLast(reachable);
-                        d[r_index] = d[v_index] + 1;
-                    }
-                    if (d[r_index] == (d[v_index] + 1)) {
-                        theta[r_index] = theta[r_index] + theta[v_index];
-                        P[r_index].addLast(v);
+            //a checkpoint covers a prefix of the sources, BrandesPass drops unfinished chunks
+            String checkpointKey = checkpointFile == null || anytime ? null : checkpointKey(index, mspLabels, exnLabels, trees != null);
+            Accumulators resumed = null;
+            if (checkpointKey != null && resume) {
+                phases.begin("Checkpoint load");
+                try {
+                    Checkpoint checkpoint = Checkpoint.load(checkpointFile, checkpointKey, N, mspLabels.length, exnLabels.length);
+                    if (checkpoint != null && checkpoint.done <= sources.length) {
+                        resumed = checkpoint.sums;
+                        resumedSources = checkpoint.done;
                     }
+                } catch (IOException ex) {
+                    LOG.log(Level.WARNING, "Checkpoint " + checkpointFile + " not read, starting over", ex);
                 }
-            }
-            double reachable = 0;
-            for (int i = 0; i < N; i++) {
-                if (d[i] > 0) {
-                    reachable++;
+                endPhase(resumed == null ? "no matching checkpoint" : resumedSources + " sources done");
+                if (resumedSources > 0) {
+                    sources = Arrays.copyOfRange(sources, resumedSources, sources.length);
+                    scales = scales == null ? null : Arrays.copyOfRange(scales, resumedSources, scales.length);
+                    Progress.switchToDeterminate(progress, sources.length);
                 }
             }
- 
-            shortestPaths += reachable;
-
-            double[] delta = new double[N];
-            //double[] delta_bridge_MSP = new double[N];
-            double[] delta_bridge_MSP3 = new double[N];
-            double[] delta_bridge_MSP4 = new double[N];
-            double[] delta_bridge_MSP5 = new double[N];
-            
-            double[] delta_bridge_EXN = new double[N];
-            ///double delta_bridge_EXN_b = 0; //BEFORE, t-1
-            
-             while (!S.empty()) {
-                Node w = S.pop();
-                
-                int w_index = indicies.get(w);
-                ListIterator<Node> predecessorIter = P[w_index].listIterator();                
-
-                while (predecessorIter.hasNext()) { //w to s
-                    Node predecessor = predecessorIter.next();
-
-                    
-                    int predecessor_index = indicies.get(predecessor);
-                    
-                    
-                    delta[predecessor_index] += 
-                        (theta[predecessor_index] / theta[w_index]) *
-                        (1 + delta[w_index]);
-                    
-                    //Filter out neighbors - from the beginning to the other end                    
-                    delta_bridge_EXN[predecessor_index] += 
-                            (theta[predecessor_index] / theta[w_index]) *
-                            delta[w_index];
-               
-                    
-                    //Filter out too short shortest paths                     
-                    //if(d[w_index] >= minPathLength) {
-                    //    delta_bridge_MSP[predecessor_index] += 
-                    //            (theta[predecessor_index] / theta[w_index]) *
-                    //            (1 + delta[w_index]);
-                    //} else {
-                    //    delta_bridge_MSP[predecessor_index] += 
-                    //        (theta[predecessor_index] / theta[w_index]) *
-                    //        delta[w_index];  
-                    //}
-                    
-                    //Filter out too short shortest paths 3, 4 and 5                     
-                    if(d[w_index] >= 3) {
-                        delta_bridge_MSP3[predecessor_index] += 
-                                (theta[predecessor_index] / theta[w_index]) *
-                                (1 + delta[w_index]);
-                    } else {
-                        delta_bridge_MSP3[predecessor_index] += 
-                            (theta[predecessor_index] / theta[w_index]) *
-                            delta[w_index];
-                        
-                    }
-                    //Filter out too short shortest paths                     
-                    if(d[w_index] >= 4) {
-                        delta_bridge_MSP4[predecessor_index] += 
-                                (theta[predecessor_index] / theta[w_index]) *
-                                (1 + delta[w_index]);
-                    } else {
-                        delta_bridge_MSP4[predecessor_index] += 
-                            (theta[predecessor_index] / theta[w_index]) *
-                            delta[w_index];
-                        
+
+            phases.begin("Brandes traversal");
+            BrandesPass.Listener listener = null;
+            long publishMillis = 0;
+            if (checkpointKey != null) {
+                final String key = checkpointKey;
+                final Accumulators base = resumed;
+                final int offset = resumedSources;
+                publishMillis = checkpointInterval;
+                listener = new BrandesPass.Listener() {
+                    @Override
+                    public boolean partial(Accumulators sums, int done) {
+                        saveCheckpoint(key, base, sums, offset + done);
+                        return true;
                     }
-                    //Filter out too short shortest paths                     
-                    if(d[w_index] >= 5) {
-                        delta_bridge_MSP5[predecessor_index] += 
-                                (theta[predecessor_index] / theta[w_index]) *
-                                (1 + delta[w_index]);
-                    } else {
-                        delta_bridge_MSP5[predecessor_index] += 
-                            (theta[predecessor_index] / theta[w_index]) *
-                            delta[w_index];
-                        
+                };
+            } else if (anytime) {
+                final GraphIndex published = index;
+                final long deadline = timeBudget > 0 ? System.currentTimeMillis() + timeBudget : Long.MAX_VALUE;
+                publishMillis = timeBudget > 0
+                        ? Math.max(MIN_PUBLISH_MILLIS, Math.min(PUBLISH_MILLIS, timeBudget / 10))
+                        : PUBLISH_MILLIS;
+                listener = new BrandesPass.Listener() {
+                    private double[] previous;
+
+                    @Override
+                    public boolean partial(Accumulators sums, int done) {
+                        writeResults(published, sums, done);
+                        boolean converged = previous != null && relativeChange(previous, sums.betweenness) < tolerance;
+                        previous = sums.betweenness;
+                        return !converged && System.currentTimeMillis() < deadline;
                     }
-                      //***
+                };
+            }
+            sums = pass.run(sources, scales, progress, listener, publishMillis);
+            done = pass.getCompletedSources();
+            phases.addWorkers(pass.getWorkerCpuNanos(), pass.getWorkerAllocatedBytes());
+            pass = null;
+            endPhase(done + " sources on " + threads + " threads");
+            phases.count("Sources processed", done);
+            if (checkpointKey != null && sums != null) {
+                if (isCanceled) {
+                    //stopped rather than dropped, keep what was done
+                    saveCheckpoint(checkpointKey, resumed, sums, resumedSources + done);
+                } else {
+                    Checkpoint.delete(checkpointFile);
                 }
-                              
-           
-                if ( d[w_index] > 1 ) {
-                    bridginessEXN[w_index] += delta_bridge_EXN[w_index];
-                }  
-                    
-                if ( w != s ) {
-                    betweenness[w_index] += delta[w_index];
-                    //bridginessMSP[w_index] += delta_bridge_MSP[w_index];
-                    bridginessMSP3[w_index] += delta_bridge_MSP3[w_index];
-                    bridginessMSP4[w_index] += delta_bridge_MSP4[w_index];
-                    bridginessMSP5[w_index] += delta_bridge_MSP5[w_index];
+                if (resumed != null) {
+                    resumed.foldInto(sums);
+                    done += resumedSources;
                 }
-       
-             }
-            
-            count++;
+                if (resumedSources > 0) {
+                    phases.count("Sources resumed", resumedSources);
+                }
+            }
+            if (trees != null && done == trees.sources.length) {
+                //the roots stood for every node
+                done = N;
+            }
             if (isCanceled) {
-                hgraph.readUnlockAll();
+                writeResults(index, null, 0);
                 return;
             }
-            Progress.progress(progress, count);
+            if (refreshable && sums != null && done == N) {
+                previousRun = new IncrementalBrandes(index, lengths, radii, isDirected, sums);
+            }
+        }
+        phases.begin("Attribute write back");
+        long cells;
+        if (sums == null || done == 0) {
+            cells = writeResults(index, null, 0);
+        } else {
+            phases.count("Edges relaxed", sums.edgesRelaxed);
+            phases.count("Shortest paths counted", sums.shortestPaths);
+            cells = writeResults(index, sums, anytime ? done : N);
+        }
+        endPhase(cells + " cells changed");
+        phases.count("Cells written", cells);
+        if (paths && (sums == null || done == 0)) {
+            return;
+        }
+        if (cacheKey != null && !isCanceled) {
+            cache.put(cacheKey, new ResultCache.Entry(betweenness, bridginessMSP, bridginessEXN,
+                    mspRunLabels, exnRunLabels, nodeentropy, stirling, communities, shortestPaths, sampledSources, errorBound));
+        }
+        Progress.finish(progress);
+    }
+
+    /**
+     * Runs on a memory-mapped graph, for graphs too large for the heap or
+     * for a Gephi graph: betweenness, MSP and EXN on hop counts, exact or
+     * on a uniform sample of sources. Nothing is written to any table, the
+     * arrays are read back with {@link #getResult(String)} and the nodes
+     * named with {@link MappedGraph#getId(int)}. Directedness is the
+     * graph's.
+     */
+    public void execute(MappedGraph graph) {
+        if (weighted) {
+            throw new IllegalArgumentException("Mapped graphs have no edge weights, use hop counts");
+        }
+        isCanceled = false;
+        isDirected = graph.isDirected();
+        int[] lengths = computeMSP ? minPathLengths : new int[0];
+        int[] radii = computeEXN ? exclNeighbors : new int[0];
+        betweennessCol = null;
+        bridginessMSPCols = new AttributeColumn[lengths.length];
+        bridginessEXNCols = new AttributeColumn[radii.length];
+        nodeentropyCol = null;
+        stirlingCol = null;
+
+        phases = new PhaseProfile();
+        reportCharts = null;
+        mspRunLabels = computeMSP ? mspLabels() : new String[0];
+        exnRunLabels = computeEXN ? exnLabels() : new String[0];
+        N = graph.getNodeCount();
+        betweenness = null;
+        bridginessMSP = null;
+        bridginessEXN = null;
+        nodeentropy = null;
+        stirling = null;
+        shortestPaths = 0;
+        communities = 0;
+        sampledSources = 0;
+        errorBound = 0;
+        rerunSources = -1;
+        cacheHit = false;
+        resumedSources = 0;
+        prunedNodes = 0;
+        phases.count("Nodes", N);
+        phases.count("Arcs", graph.getEdgeCount());
+        if (!computeBetweenness && lengths.length == 0 && radii.length == 0) {
+            return;
+        }
+
+        Progress.start(progress, N);
+        int[] sources;
+        double[] scales = null;
+        int m = approximate ? SourceSample.sampleSize(N, targetError, 1 - confidence) : N;
+        if (m < N) {
+            //no degrees at hand, uniform pivots
+            SourceSample sample = SourceSample.uniform(N, m, new Random(seed));
+            sources = sample.sources;
+            scales = sample.scales;
+            sampledSources = sources.length;
+            errorBound = sample.errorBound(N, 1 - confidence) / (isDirected ? 1 : 2);
+            Progress.switchToDeterminate(progress, sampledSources);
+        } else {
+            sources = new int[N];
+            for (int s = 0; s < N; s++) {
+                sources[s] = s;
+            }
+        }
+        pass = new BrandesPass(graph, lengths, radii, threads);
+        if (isCanceled) {
+            pass = null;
+            return;
+        }
+
+        phases.begin("Brandes traversal");
+        Accumulators sums = pass.run(sources, scales, progress);
+        int done = pass.getCompletedSources();
+        phases.addWorkers(pass.getWorkerCpuNanos(), pass.getWorkerAllocatedBytes());
+        pass = null;
+        endPhase(done + " sources on " + threads + " threads, mapped");
+        phases.count("Sources processed", done);
+        if (isCanceled || sums == null) {
+            return;
+        }
+        phases.count("Edges relaxed", sums.edgesRelaxed);
+        phases.count("Shortest paths counted", sums.shortestPaths);
+        scaleResults(sums, N);
+        Progress.finish(progress);
+    }
+
+    //base plus partial into the checkpoint file, a failed write is logged and skipped
+    private void saveCheckpoint(String key, Accumulators base, Accumulators partial, int done) {
+        Accumulators sums = partial;
+        if (base != null) {
+            sums = base.copy();
+            partial.copy().foldInto(sums);
+        }
+        try {
+            Checkpoint.save(checkpointFile, key, sums, done);
+            LOG.log(Level.FINE, "Checkpoint of {0} sources written to {1}", new Object[]{done, checkpointFile});
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Checkpoint not written to " + checkpointFile, ex);
+        }
+    }
+
+    /**
+     * Fingerprint of the snapshot and of the path settings, the same after
+     * reloading the same graph: node ids are the ids of the file.
+     */
+    private String checkpointKey(GraphIndex index, String[] mspLabels, String[] exnLabels, boolean pruned) {
+        StringBuilder key = new StringBuilder();
+        key.append(isDirected ? "directed" : "undirected")
+                .append(";nodes=").append(N)
+                .append(";arcs=").append(index.getEdgeCount())
+                .append(";structure=").append(Long.toHexString(fingerprint(index)))
+                .append(";weighted=").append(weighted)
+                .append(";msp=").append(formatList(mspLabels))
+                .append(";exn=").append(formatList(exnLabels))
+                .append(";pruned=").append(pruned);
+        if (approximate) {
+            key.append(";error=").append(targetError)
+                    .append(";confidence=").append(confidence)
+                    .append(";stratified=").append(stratified)
+                    .append(";seed=").append(seed);
+        }
+        return key.toString();
+    }
+
+    //hash of the node ids in index order, the arcs and their weights
+    private static long fingerprint(GraphIndex index) {
+        long hash = 17;
+        for (int v = 0; v < index.getNodeCount(); v++) {
+            Node node = index.getNode(v);
+            hash = 31 * hash + (node == null ? v : node.getNodeData().getId().hashCode());
+            hash = 31 * hash + index.offsets[v + 1];
+        }
+        for (int e = 0; e < index.targets.length; e++) {
+            hash = 31 * hash + index.targets[e];
+            hash = 31 * hash + Float.floatToIntBits(index.weights[e]);
+        }
+        return hash;
+    }
+
+    //the cache of the current workspace, or of this instance outside of a project
+    private ResultCache cache() {
+        ProjectController projects = Lookup.getDefault().lookup(ProjectController.class);
+        Workspace workspace = projects == null ? null : projects.getCurrentWorkspace();
+        ResultCache cache = workspace == null ? localCache : workspace.getLookup().lookup(ResultCache.class);
+        if (cache == null) {
+            cache = new ResultCache(cacheSize);
+            if (workspace == null) {
+                localCache = cache;
+            } else {
+                workspace.add(cache);
+            }
+        }
+        cache.setCapacity(cacheSize);
+        return cache;
+    }
+
+    //the community ids of the current workspace, or of this instance outside of a project
+    private PartitionMapping partitionMapping(AttributeColumn column) {
+        ProjectController projects = Lookup.getDefault().lookup(ProjectController.class);
+        Workspace workspace = projects == null ? null : projects.getCurrentWorkspace();
+        synchronized (workspace == null ? this : workspace) {
+            PartitionMapping previous = workspace == null
+                    ? localMapping : workspace.getLookup().lookup(PartitionMapping.class);
+            PartitionMapping mapping = PartitionMapping.forColumn(previous, column);
+            if (mapping != previous) {
+                if (workspace == null) {
+                    localMapping = mapping;
+                } else {
+                    if (previous != null) {
+                        workspace.remove(previous);
+                    }
+                    workspace.add(mapping);
+                }
+            }
+            return mapping;
         }
+    }
+
+    /**
+     * Fingerprint of the snapshot (node ids in index order, arcs, weights,
+     * the graph versions and the partition) and of every setting the result
+     * arrays depend on. The caller holds the graph read lock.
+     */
+    private String cacheKey(HierarchicalGraph hgraph, GraphIndex index, int[] community,
+            String[] mspLabels, String[] exnLabels) {
+        StringBuilder key = new StringBuilder();
+        key.append(isDirected ? "directed" : "undirected")
+                .append(";nodes=").append(N)
+                .append(";arcs=").append(index.getEdgeCount())
+                .append(";versions=").append(hgraph.getNodeVersion()).append('/').append(hgraph.getEdgeVersion())
+                .append(";structure=").append(Long.toHexString(fingerprint(index)))
+                .append(";weighted=").append(weighted)
+                .append(";betweenness=").append(computeBetweenness)
+                .append(";msp=").append(formatList(mspLabels))
+                .append(";exn=").append(formatList(exnLabels))
+                .append(";entropy=").append(computeEntropy)
+                .append(";stirling=").append(computeStirling);
+        if (community != null) {
+            key.append(";partition=").append(partitionColumn)
+                    .append('/').append(Integer.toHexString(Arrays.hashCode(community)))
+                    .append(";topk=").append(stirlingTopK);
+        }
+        if (approximate) {
+            key.append(";error=").append(targetError)
+                    .append(";confidence=").append(confidence)
+                    .append(";stratified=").append(stratified)
+                    .append(";seed=").append(seed);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Brings the sums of the previous run up to date with the edges edited
+     * since, re-running only the affected sources.
+     *
+     * @return the unscaled sums, <code>null</code> to fall back to a full
+     * pass or if canceled
+     */
+    private Accumulators refresh(GraphIndex index, int[] lengths, int[] radii) {
+        phases.begin("Affected sources");
+        int[] affected = previousRun.affectedSources(index);
+        endPhase(affected == null ? "too many, full pass" : affected.length + " of " + N);
+        if (affected == null) {
+            previousRun = null;
+            return null;
+        }
+        phases.count("Sources re-run", affected.length);
+
+        phases.begin("Incremental refresh");
+        Progress.switchToDeterminate(progress, affected.length);
+        double[] minus = new double[affected.length];
+        Arrays.fill(minus, -1);
+        Accumulators removed = null;
+        Accumulators added = null;
+        pass = new BrandesPass(previousRun.getIndex(), lengths, radii, threads);
+        if (!isCanceled) {
+            removed = pass.run(affected, minus, progress);
+            phases.addWorkers(pass.getWorkerCpuNanos(), pass.getWorkerAllocatedBytes());
+        }
+        pass = new BrandesPass(index, lengths, radii, threads);
+        if (removed != null && !isCanceled) {
+            added = pass.run(affected, null, progress);
+            phases.addWorkers(pass.getWorkerCpuNanos(), pass.getWorkerAllocatedBytes());
+        }
+        pass = null;
+        endPhase(affected.length + " sources on each snapshot");
+        if (added == null) {
+            previousRun = null;
+            return null;
+        }
+        rerunSources = affected.length;
+        return previousRun.commit(index, removed, added);
+    }
+
+    //ends the running phase and logs it at INFO
+    private void endPhase(String detail) {
+        PhaseProfile.Phase phase = phases.end();
+        if (phase != null && LOG.isLoggable(Level.INFO)) {
+            LOG.log(Level.INFO, "{0}: {1} ms wall, {2} ms CPU, {3}", new Object[]{phase.getName(),
+                phase.getWallNanos() / 1000000, phase.getCpuNanos() / 1000000, detail});
+        }
+    }
+
+    private static AttributeColumn column(AttributeTable table, String id, String title) {
+        AttributeColumn column = table.getColumn(id);
+        if (column == null) {
+            column = table.addColumn(id, title, AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
+        }
+        return column;
+    }
+
+    /**
+     * Normalizes the sums and writes them with entropy and Stirling to the
+     * node table, in one batch. Fewer than N <code>done</code> sources means
+     * an anytime estimate, scaled up to N. Null <code>sums</code> write
+     * entropy and Stirling only.
+     *
+     * @return the number of cells changed
+     */
+    private long writeResults(GraphIndex index, Accumulators sums, int done) {
+        if (sums != null) {
+            scaleResults(sums, done);
+        }
+        return writeColumns(index);
+    }
+
+    //normalized sums become the result arrays
+    private void scaleResults(Accumulators sums, int done) {
+        double factor = isDirected ? 1 : 0.5;
+        if (done < N) {
+            factor *= (double) N / done;
+            sampledSources = done;
+            errorBound = SourceSample.uniformErrorBound(N, done, 1 - confidence) / (isDirected ? 1 : 2);
+        }
+        sums.scale(factor);
+        
+        betweenness = sums.betweenness;
+        bridginessMSP = sums.bridginessMSP;
+        bridginessEXN = sums.bridginessEXN;
+        shortestPaths = sums.shortestPaths;
 
         //avgDist /= shortestPaths;//mN * (mN - 1.0f);
 
-        for (Node s : hgraph.getNodes()) {
-            AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
-            int s_index = indicies.get(s);
-
-            if (!isDirected) {             
-                betweenness[s_index] /= 2;
-                //bridginessMSP[s_index] /= 2;
-                bridginessMSP3[s_index] /= 2;
-                bridginessMSP4[s_index] /= 2;
-                bridginessMSP5[s_index] /= 2;
-                bridginessEXN[s_index] /= 2;
-            }
-            //if (isNormalized) {
-            //    bridginess[s_index] /= isDirected ? (N - 1) * (N - 2) : (N - 1) * (N - 2) / 2;
-            //}
-            row.setValue(betweennessCol, betweenness[s_index]);  
-            //row.setValue(bridginessMSPCol, bridginessMSP[s_index]);   
-            row.setValue(bridginessMSPCol3, bridginessMSP3[s_index]);   
-            row.setValue(bridginessMSPCol4, bridginessMSP4[s_index]);   
-            row.setValue(bridginessMSPCol5, bridginessMSP5[s_index]);   
-            row.setValue(bridginessEXNCol, bridginessEXN[s_index]);   
-            //row.setValue(nodeentropyCol, nodeentropy[s_index]);   
-        } 
-*/
-        hgraph.readUnlock();                
+        //if (isNormalized) {
+        //    bridginess[s_index] /= isDirected ? (N - 1) * (N - 2) : (N - 1) * (N - 2) / 2;
+        //}
+    }
+
+    /**
+     * Writes the current result arrays to their columns, in one batch.
+     *
+     * @return the number of cells changed
+     */
+    private long writeColumns(GraphIndex index) {
+        ResultWriter writer = new ResultWriter()
+                .add(nodeentropyCol, nodeentropy)
+                .add(stirlingCol, stirling);
+        if (betweenness == null) {
+            return writer.write(index);
+        }
+        writer.add(betweennessCol, betweenness);
+        for (int k = 0; k < bridginessMSP.length; k++) {
+            writer.add(bridginessMSPCols[k], bridginessMSP[k]);
+        }
+        for (int k = 0; k < bridginessEXN.length; k++) {
+            writer.add(bridginessEXNCols[k], bridginessEXN[k]);
+        }
+        return writer.write(index);
+    }
+
+    private static double relativeChange(double[] previous, double[] current) {
+        double change = 0;
+        double norm = 0;
+        for (int i = 0; i < current.length; i++) {
+            change += Math.abs(current[i] - previous[i]);
+            norm += Math.abs(current[i]);
+        }
+        return norm == 0 ? 0 : change / norm;
     }
   
        
    
     @Override
     public boolean cancel() {
+        BrandesPass running = pass;
+        if (anytime && running != null) {
+            //keep and write the estimate so far
+            running.stop();
+            return true;
+        }
         this.isCanceled = true;
+        if (running != null && checkpointFile != null) {
+            //the run saves the sums so far before returning
+            running.stop();
+        } else if (running != null) {
+            running.cancel();
+        }
         return true;
     }
 
+    /**
+     * @return whether the last run was cancelled, its results are then
+     * missing or incomplete; an anytime run stopped early is not
+     */
+    public boolean isCanceled() {
+        return isCanceled;
+    }
+
     @Override
     public void setProgressTicket(ProgressTicket pt) {
         this.progress = pt;
@@ -575,22 +907,44 @@ public class Bridginess implements Statistics, LongTask {
     }
 
     
+    //sampling error bound against the largest estimate of a metric
+    private String relativeError(double[] values) {
+        if (sampledSources == 0) {
+            return "";
+        }
+        double max = 0;
+        for (double v : values) {
+            max = Math.max(max, v);
+        }
+        return "Error bound: &plusmn;" + errorBound + (max > 0 ? " (" + (float) (100 * errorBound / max) + "% of the maximum)" : "");
+    }
+
     @Override
     public String getReport() {
-        //String htmlIMG1 = "";
-        String htmlIMG13 = "";
-        String htmlIMG14 = "";
-        String htmlIMG15 = "";
-        String htmlIMG2 = "";
-        try {
-            TempDir tempDir = TempDirUtils.createTempDir();
-            //htmlIMG1 = createImageFile(tempDir, bridginessMSP, "MSP Bridginess Distribution", "Value", "Count");
-            htmlIMG13 = createImageFile(tempDir, bridginessMSP3, "MSP3 Bridginess Distribution", "Value", "Count");
-            htmlIMG14 = createImageFile(tempDir, bridginessMSP4, "MSP4 Bridginess Distribution", "Value", "Count");
-            htmlIMG15 = createImageFile(tempDir, bridginessMSP5, "MSP5 Bridginess Distribution", "Value", "Count");
-            htmlIMG2 = createImageFile(tempDir, bridginessEXN, "EXN Bridginess Distribution", "Value", "Count");
-        } catch (IOException ex) {
-            Exceptions.printStackTrace(ex);
+        if (reportCharts == null) {
+            //once per run, later reports reuse the images and leave the profile alone
+            String htmlIMG1 = "";
+            String htmlIMG2 = "";
+            if (phases != null) {
+                phases.begin("Chart rendering");
+            }
+            try {
+                TempDir tempDir = TempDirUtils.createTempDir();
+                for (int k = 0; bridginessMSP != null && k < bridginessMSP.length; k++) {
+                    htmlIMG1 += createImageFile(tempDir, bridginessMSP[k], "MSP" + mspRunLabels[k] + " Bridginess Distribution", "Value", "Count") + "<br />"
+                            + relativeError(bridginessMSP[k]) + "<br /><br />";
+                }
+                for (int k = 0; bridginessEXN != null && k < bridginessEXN.length; k++) {
+                    htmlIMG2 += createImageFile(tempDir, bridginessEXN[k], "EXN" + exnRunLabels[k] + " Bridginess Distribution", "Value", "Count") + "<br />"
+                            + relativeError(bridginessEXN[k]) + "<br /><br />";
+                }
+            } catch (IOException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+            if (phases != null) {
+                endPhase(bridginessMSP == null ? "" : (bridginessMSP.length + bridginessEXN.length) + " charts");
+            }
+            reportCharts = htmlIMG1 + htmlIMG2;
         }
 
         String report = "<HTML> <BODY> <h1>Graph Distance  Report </h1> "
@@ -598,17 +952,25 @@ public class Bridginess implements Statistics, LongTask {
                 + "<br>"
                 + "<h2> Parameters: </h2>"
                 + "Network Interpretation:  " + (isDirected ? "directed" : "undirected") + "<br />"
+                + "Distances:  " + (weighted ? "edge weights" : "hops") + "<br />"
+                + "Partition:  " + partitionColumn + " (" + communities + " communities)<br />"
+                + "Stirling:  " + (stirlingTopK > 0 ? "top " + stirlingTopK + " communities per node" : "all communities") + "<br />"
+                + "Minimum path lengths:  " + formatList(mspRunLabels) + "<br />"
+                + "Excluded neighbors radii:  " + formatList(exnRunLabels) + "<br />"
+                + (sampledSources == 0 ? "Sources: all" + (rerunSources < 0 ? "" : " (incremental refresh, " + rerunSources + " re-run)")
+                    + (prunedNodes == 0 ? "" : " (" + prunedNodes + " tree nodes folded into their roots)") + "<br />"
+                    : "Sources: " + sampledSources + " of " + N + (anytime ? " (anytime, random order)" : stratified ? " (degree-stratified sample)" : " (uniform sample)") + "<br />"
+                    + "Error bound (" + Math.round(100 * confidence) + "% confidence, every node and metric): &plusmn;" + errorBound + "<br />")
                 + "<br /> <h2> Results: </h2>"
+                + (cacheHit ? "Reused from an earlier run on the same graph and settings<br /><br />" : "")
+                + (resumedSources > 0 ? "Resumed from a checkpoint of " + resumedSources + " sources<br /><br />" : "")
                 //+ "Diameter: " + diameter + "<br />"
                 //+ "Radius: " + radius + "<br />"
                 //+ "Average Path length: " + avgDist + "<br />"
                 //+ "Number of shortest paths: " + shortestPaths + "<br /><br />"
-                //+ htmlIMG1 + "<br /><br />"
-                + htmlIMG13 + "<br /><br />"
-                + htmlIMG14 + "<br /><br />"
-                + htmlIMG15 + "<br /><br />"
-                + htmlIMG2 
-                + "<br /><br />" + "<h2> Algorithm: </h2>"
+                + reportCharts
+                + (phases == null ? "" : "<h2> Performance: </h2>" + phases.toHtml() + "<br />")
+                + "<h2> Algorithm: </h2>"
                 + "Ulrik Brandes, <i>A Faster Algorithm for Betweenness Centrality</i>, in Journal of Mathematical Sociology 25(2):163-177, (2001)<br />"
                 + "Extended by Pablo Jensen (IXXI), Mathieu Jacomy (SciencesPO Medialab), Matteo Morini (IXXI)"
                 + "</BODY> </HTML>";
@@ -617,23 +979,592 @@ public class Bridginess implements Statistics, LongTask {
     }
 
     public void setMinPathLength(int minPathLength) {
-        this.minPathLength = minPathLength;
+        setMinPathLengths(new int[]{minPathLength});
     }
     
     public int getMinPathLength() {
-        return minPathLength;
+        return minPathLengths.length == 0 ? 0 : minPathLengths[0];
+    }
+
+    /**
+     * Sets the thresholds k for which BridginessMSPk is computed, all of
+     * them in the same pass. Values are sorted, duplicates and values
+     * below 1 are dropped.
+     */
+    public void setMinPathLengths(int[] minPathLengths) {
+        this.minPathLengths = sortedDistinct(minPathLengths, 1);
+        this.weightedMinPathLengths = toDoubles(this.minPathLengths);
+    }
+
+    public int[] getMinPathLengths() {
+        return minPathLengths.clone();
     }
     
     public void setExclNeighbors(int exclNeighbors) {
-        this.exclNeighbors = exclNeighbors;
+        setExclNeighbors(new int[]{exclNeighbors});
     }
     
     public int getExclNeighbors() {
-        return exclNeighbors;
+        return exclNeighbors.length == 0 ? 0 : exclNeighbors[0];
+    }
+
+    /**
+     * Sets the radii k for which BridginessEXN is computed, excluding the
+     * paths with an endpoint within k hops of the node. All radii share the
+     * MSP traversal. Values are sorted, duplicates and values below 1 are
+     * dropped.
+     */
+    public void setExclNeighbors(int[] exclNeighbors) {
+        this.exclNeighbors = sortedDistinct(exclNeighbors, 1);
+        this.weightedExclNeighbors = toDoubles(this.exclNeighbors);
+    }
+
+    public int[] getExclNeighborsRadii() {
+        return exclNeighbors.clone();
+    }
+
+    /**
+     * Uses shortest paths on edge weights instead of hop counts. Minimum path
+     * lengths and exclusion radii are then distances in weight units.
+     */
+    public void setWeighted(boolean weighted) {
+        this.weighted = weighted;
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    /**
+     * Sets the thresholds of weighted runs, in weight units, without
+     * touching those of hop runs; the int setters set both. Values are
+     * sorted, duplicates and values that are not positive are dropped.
+     */
+    public void setWeightedMinPathLengths(double[] minPathLengths) {
+        this.weightedMinPathLengths = sortedPositive(minPathLengths);
+    }
+
+    public double[] getWeightedMinPathLengths() {
+        return weightedMinPathLengths.clone();
+    }
+
+    /**
+     * Sets the exclusion radii of weighted runs, in weight units, like
+     * {@link #setWeightedMinPathLengths(double[])}.
+     */
+    public void setWeightedExclNeighbors(double[] exclNeighbors) {
+        this.weightedExclNeighbors = sortedPositive(exclNeighbors);
+    }
+
+    public double[] getWeightedExclNeighbors() {
+        return weightedExclNeighbors.clone();
+    }
+
+    /**
+     * @param partitionColumn id of the node column holding the communities
+     * for entropy and Stirling, of any integer or string type
+     */
+    public void setPartitionColumn(String partitionColumn) {
+        this.partitionColumn = partitionColumn;
+    }
+
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+
+    /**
+     * @param stirlingTopK only the heaviest communities of each node enter
+     * its Stirling diversity, 0 for all of them
+     */
+    public void setStirlingTopK(int stirlingTopK) {
+        this.stirlingTopK = Math.max(0, stirlingTopK);
+    }
+
+    public int getStirlingTopK() {
+        return stirlingTopK;
+    }
+
+    /**
+     * Overrides the directedness read from the current graph model.
+     */
+    public void setDirected(boolean directed) {
+        this.isDirected = directed;
+    }
+
+    public boolean isDirected() {
+        return isDirected;
+    }
+
+    /**
+     * @return the ids of the node columns a run with the current settings
+     * writes, in report order
+     */
+    public String[] getResultColumns() {
+        List<String> columns = new ArrayList<String>();
+        if (writeBetweenness && computeBetweenness) {
+            columns.add(BETWEENNESS);
+        }
+        for (String label : writeMSP && computeMSP ? mspLabels() : new String[0]) {
+            columns.add(BRIDGINESSMSP + label);
+        }
+        for (String label : writeEXN && computeEXN ? exnLabels() : new String[0]) {
+            columns.add(BRIDGINESSEXN + exnSuffix(label));
+        }
+        if (writeEntropy && computeEntropy) {
+            columns.add(NODEENTROPY);
+        }
+        if (writeStirling && computeStirling) {
+            columns.add(STIRLING);
+        }
+        return columns.toArray(new String[columns.size()]);
+    }
+
+    /**
+     * @param column one of the ids {@link #getResultColumns()} lists
+     * @return the values of the last run for that column, indexed like the
+     * nodes of the graph it ran on, <code>null</code> if it was not computed
+     */
+    public double[] getResult(String column) {
+        if (BETWEENNESS.equals(column)) {
+            return betweenness;
+        }
+        if (NODEENTROPY.equals(column)) {
+            return nodeentropy;
+        }
+        if (STIRLING.equals(column)) {
+            return stirling;
+        }
+        for (int k = 0; bridginessMSP != null && k < bridginessMSP.length; k++) {
+            if ((BRIDGINESSMSP + mspRunLabels[k]).equals(column)) {
+                return bridginessMSP[k];
+            }
+        }
+        for (int k = 0; bridginessEXN != null && k < bridginessEXN.length; k++) {
+            if ((BRIDGINESSEXN + exnSuffix(exnRunLabels[k])).equals(column)) {
+                return bridginessEXN[k];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes betweenness, on by default. With betweenness, MSP and EXN
+     * all off the shortest paths pass is skipped, with entropy and Stirling
+     * both off the community pass is.
+     */
+    public void setComputeBetweenness(boolean computeBetweenness) {
+        this.computeBetweenness = computeBetweenness;
+    }
+
+    public boolean isComputeBetweenness() {
+        return computeBetweenness;
+    }
+
+    public void setComputeMSP(boolean computeMSP) {
+        this.computeMSP = computeMSP;
+    }
+
+    public boolean isComputeMSP() {
+        return computeMSP;
+    }
+
+    public void setComputeEXN(boolean computeEXN) {
+        this.computeEXN = computeEXN;
+    }
+
+    public boolean isComputeEXN() {
+        return computeEXN;
+    }
+
+    public void setComputeEntropy(boolean computeEntropy) {
+        this.computeEntropy = computeEntropy;
+    }
+
+    public boolean isComputeEntropy() {
+        return computeEntropy;
+    }
+
+    public void setComputeStirling(boolean computeStirling) {
+        this.computeStirling = computeStirling;
+    }
+
+    public boolean isComputeStirling() {
+        return computeStirling;
+    }
+
+    /**
+     * Writes betweenness to the node table, on by default. Unwritten
+     * metrics are still computed and charted in the report.
+     */
+    public void setWriteBetweenness(boolean writeBetweenness) {
+        this.writeBetweenness = writeBetweenness;
+    }
+
+    public boolean isWriteBetweenness() {
+        return writeBetweenness;
+    }
+
+    public void setWriteMSP(boolean writeMSP) {
+        this.writeMSP = writeMSP;
+    }
+
+    public boolean isWriteMSP() {
+        return writeMSP;
+    }
+
+    public void setWriteEXN(boolean writeEXN) {
+        this.writeEXN = writeEXN;
+    }
+
+    public boolean isWriteEXN() {
+        return writeEXN;
+    }
+
+    public void setWriteEntropy(boolean writeEntropy) {
+        this.writeEntropy = writeEntropy;
+    }
+
+    public boolean isWriteEntropy() {
+        return writeEntropy;
+    }
+
+    public void setWriteStirling(boolean writeStirling) {
+        this.writeStirling = writeStirling;
+    }
+
+    public boolean isWriteStirling() {
+        return writeStirling;
+    }
+
+    //radius 1 keeps the historical unsuffixed column
+    private static String exnSuffix(String radius) {
+        return radius.equals("1") ? "" : radius;
+    }
+
+    //thresholds of the current settings, weighted or in hops, as printed
+    private String[] mspLabels() {
+        String[] labels = new String[weighted ? weightedMinPathLengths.length : minPathLengths.length];
+        for (int k = 0; k < labels.length; k++) {
+            labels[k] = weighted ? formatThreshold(weightedMinPathLengths[k]) : String.valueOf(minPathLengths[k]);
+        }
+        return labels;
+    }
+
+    private String[] exnLabels() {
+        String[] labels = new String[weighted ? weightedExclNeighbors.length : exclNeighbors.length];
+        for (int k = 0; k < labels.length; k++) {
+            labels[k] = weighted ? formatThreshold(weightedExclNeighbors[k]) : String.valueOf(exclNeighbors[k]);
+        }
+        return labels;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return wall time, CPU time and allocation of each phase of the last
+     * run with its counters, <code>null</code> before the first run
+     */
+    public PhaseProfile getPhaseProfile() {
+        return phases;
     }
 
     public double getAvgBridginess() {
         return avgBridginess;
     }
+
+    /**
+     * Runs the Brandes pass from a sample of pivot sources sized from
+     * {@link #setTargetError(double)} and {@link #setConfidence(double)}.
+     */
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    public void setStratified(boolean stratified) {
+        this.stratified = stratified;
+    }
+
+    public boolean isStratified() {
+        return stratified;
+    }
+
+    /**
+     * Maximum absolute error of every node value, as a fraction of
+     * N * (N - 2), the largest possible value.
+     */
+    public void setTargetError(double targetError) {
+        this.targetError = targetError;
+    }
+
+    public double getTargetError() {
+        return targetError;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Processes the sources in random order, writes scaled estimates to the
+     * node table as it goes and stops when the time budget is spent or the
+     * estimates settle. Canceling keeps the last estimate. Replaces
+     * {@link #setApproximate(boolean)}.
+     */
+    public void setAnytime(boolean anytime) {
+        this.anytime = anytime;
+    }
+
+    public boolean isAnytime() {
+        return anytime;
+    }
+
+    /**
+     * @param timeBudget anytime wall-clock budget in milliseconds, 0 for none
+     */
+    public void setTimeBudget(long timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * @param tolerance relative L1 change of the betweenness estimates between
+     * two publications under which an anytime run stops
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Keeps the sums of each exact run, so that executing this instance
+     * again after edge insertions or deletions only re-runs the sources
+     * whose shortest paths changed. Unweighted, non-sampled runs on the same
+     * nodes and settings only, anything else runs in full.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            previousRun = null;
+        }
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Number of result sets kept in the workspace, least recently used out.
+     * A run whose graph fingerprint and settings match a kept set writes it
+     * back without computing anything. Each set holds the result arrays, a
+     * few doubles per node. 0 disables the cache; anytime runs are never
+     * cached.
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = Math.max(0, cacheSize);
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Saves the partial sums of the Brandes pass and the number of sources
+     * done to <code>checkpointFile</code> every checkpoint interval, and
+     * when the run is canceled. The file is deleted once the run completes.
+     * Anytime runs are not checkpointed. <code>null</code> disables.
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @param checkpointInterval ms between two checkpoints
+     */
+    public void setCheckpointInterval(long checkpointInterval) {
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Starts from the checkpoint file when it was saved on the same graph
+     * (node ids, edges, weights) with the same path settings, running only
+     * the sources left.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * Strips degree-1 nodes until none is left before exact hop count runs
+     * on undirected graphs, and traverses from the remaining nodes only,
+     * each one standing for the tree hanging below it. Results are the same
+     * as without pruning, on by default.
+     */
+    public void setPruneTrees(boolean pruneTrees) {
+        this.pruneTrees = pruneTrees;
+    }
+
+    public boolean isPruneTrees() {
+        return pruneTrees;
+    }
+
+    /**
+     * @return the half-width of the confidence interval of the last sampled
+     * or anytime run, 0 if it was exact
+     */
+    public double getErrorBound() {
+        return errorBound;
+    }
+
+    static int[] sortedDistinct(int[] values, int min) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int v : sorted) {
+            if (v >= min && (n == 0 || sorted[n - 1] != v)) {
+                sorted[n++] = v;
+            }
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    private static double[] sortedPositive(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (double v : sorted) {
+            if (v > 0 && (n == 0 || sorted[n - 1] != v)) {
+                sorted[n++] = v;
+            }
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    /**
+     * Parses lists like "3, 4, 5" or ranges like "2-10" (or a mix of both).
+     *
+     * @throws NumberFormatException if a token is not an int or a range
+     */
+    static int[] parseIntList(String text) {
+        int[] values = new int[8];
+        int n = 0;
+        for (String token : text.split("[,;\\s]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            int dash = token.indexOf('-', 1);
+            int from = Integer.parseInt(dash < 0 ? token : token.substring(0, dash));
+            int to = dash < 0 ? from : Integer.parseInt(token.substring(dash + 1));
+            for (int v = from; v <= to; v++) {
+                if (n == values.length) {
+                    values = Arrays.copyOf(values, 2 * n);
+                }
+                values[n++] = v;
+            }
+        }
+        return Arrays.copyOf(values, n);
+    }
+
+    /**
+     * Parses lists of distances like "0.5, 2, 2.5".
+     *
+     * @throws NumberFormatException if a token is not a number
+     */
+    static double[] parseDoubleList(String text) {
+        double[] values = new double[8];
+        int n = 0;
+        for (String token : text.split("[,;\\s]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (n == values.length) {
+                values = Arrays.copyOf(values, 2 * n);
+            }
+            values[n++] = Double.parseDouble(token);
+        }
+        return Arrays.copyOf(values, n);
+    }
+
+    private static double[] toDoubles(int[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i];
+        }
+        return doubles;
+    }
+
+    static String formatDoubleList(double[] values) {
+        String[] labels = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            labels[i] = formatThreshold(values[i]);
+        }
+        return formatList(labels);
+    }
+
+    //whole distances without the ".0", so that they name the same columns as hops
+    private static String formatThreshold(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    private static String formatList(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (String v : values) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(v);
+        }
+        return sb.toString();
+    }
+
+    static String formatIntList(int[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int v : values) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(v);
+        }
+        return sb.toString();
+    }
     
 }
@@ -0,0 +1,209 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+
+/**
+ * Brandes 2001 accumulation on a {@link GraphIndex}, one source at a time.
+ * Everything runs on int node indices, no graph lock is needed.
+ * <p>
+ * A kernel is a per-thread workspace: the traversal arrays are allocated
+ * once and only the entries touched by a source are reset afterwards, so
+ * {@link #source(int)} does not allocate after warm-up.
+ * <p>
+ * Minimum path length thresholds share a single dependency pass. Writing
+ * F_j(v) for the dependency of the source on v restricted to targets at
+ * least j hops beyond v, F_1 is the usual Brandes delta and
+ * F_j(v) = sum over successors w of theta(v) / theta(w) * F_j-1(w), with
+ * F_0(w) = 1 + F_1(w). The MSPk value of v is F_max(1, k - d(v)), so only
+ * the nodes closer than the largest threshold need more levels than the
+ * exclusion radii do. Excluding endpoints within r hops of v, the EXN value
+ * is F_r+1(v), counted when d(v) &gt; r.
+ * <p>
+ * Only {@link #traverse(int)} and {@link #pull(int, int, int)} read the
+ * adjacency, {@link MappedBridginessKernel} overrides them to read it from
+ * a memory-mapped file. {@link PrunedBridginessKernel} extends the pass to
+ * sources standing for a whole hanging tree.
+ *
+ * @author MM@IXXI
+ */
+class BridginessKernel extends SourceKernel {
+
+    private final GraphIndex index;
+    final int[] minPathLengths;
+    private final int maxPathLength;
+    final int[] exclRadii;
+    private final int minLevels;
+
+    //workspace, order[0..reached) are the nodes touched by the last source
+    final int[] order;
+    final int[] d;
+    final double[] theta;
+    final double[] delta;
+    //F_2..F_L of node v live in far[base[v]..base[v] + L - 2]
+    final int[] base;
+    double[] far;
+
+    /**
+     * @param minPathLengths sorted thresholds, each at least 1
+     * @param exclRadii sorted exclusion radii, each at least 1
+     */
+    BridginessKernel(GraphIndex index, int[] minPathLengths, int[] exclRadii) {
+        this(index, index.getNodeCount(), minPathLengths, exclRadii);
+    }
+
+    /**
+     * @param index <code>null</code> for subclasses reading another
+     * adjacency of <code>n</code> nodes
+     */
+    BridginessKernel(GraphIndex index, int n, int[] minPathLengths, int[] exclRadii) {
+        super(new Accumulators(n, minPathLengths.length, exclRadii.length));
+        this.index = index;
+        this.minPathLengths = minPathLengths;
+        this.maxPathLength = minPathLengths.length == 0 ? 0 : minPathLengths[minPathLengths.length - 1];
+        this.exclRadii = exclRadii;
+        this.minLevels = exclRadii.length == 0 ? 1 : exclRadii[exclRadii.length - 1] + 1;
+        order = new int[n];
+        d = new int[n];
+        theta = new double[n];
+        delta = new double[n];
+        base = new int[n];
+        far = new double[Math.max(16, n)];
+        Arrays.fill(d, -1);
+    }
+
+    //number of F_j kept for a node at depth dv
+    int levels(int dv) {
+        return Math.max(minLevels, maxPathLength - dv);
+    }
+
+    void source(int s) {
+        source(s, 1);
+    }
+
+    @Override
+    void source(int s, double scale) {
+        final int[] order = this.order;
+        final int[] d = this.d;
+        final double[] theta = this.theta;
+        final double[] delta = this.delta;
+        final int[] base = this.base;
+        final double[] betweenness = sums.betweenness;
+        final double[][] bridginessMSP = sums.bridginessMSP;
+        final double[][] bridginessEXN = sums.bridginessEXN;
+
+        int tail = traverse(s);
+        sums.shortestPaths += tail - 1;
+
+        //lay out the F_2.. slots of every reached node
+        int slots = 0;
+        for (int i = 1; i < tail; i++) {
+            int v = order[i];
+            base[v] = slots;
+            slots += levels(d[v]) - 1;
+        }
+        if (slots > far.length) {
+            far = new double[Math.max(slots, 2 * far.length)];
+        }
+        final double[] far = this.far;
+
+        //dependencies from the deepest nodes up
+        for (int i = tail - 1; i > 0; i--) {
+            int v = order[i];
+            int lv = levels(d[v]);
+            int bv = base[v];
+            Arrays.fill(far, bv, bv + lv - 1, 0);
+            double deltaV = pull(v, lv, bv);
+            delta[v] = deltaV;
+
+            betweenness[v] += scale * deltaV;
+            //Filter out neighbors - from the beginning to the other end
+            for (int k = 0; k < exclRadii.length && d[v] > exclRadii[k]; k++) {
+                bridginessEXN[k][v] += scale * far[bv + exclRadii[k] - 1];
+            }
+            //Filter out too short shortest paths
+            for (int k = 0; k < minPathLengths.length; k++) {
+                int j = minPathLengths[k] - d[v];
+                bridginessMSP[k][v] += scale * (j <= 1 ? deltaV : far[bv + j - 2]);
+            }
+        }
+
+        //reset what this source touched, delta and far are assigned before read
+        for (int i = 0; i < tail; i++) {
+            int v = order[i];
+            d[v] = -1;
+            theta[v] = 0;
+        }
+    }
+
+    /**
+     * BFS from <code>s</code>, filling order, d and theta. The queue read
+     * backwards is the Brandes stack.
+     *
+     * @return the number of nodes reached
+     */
+    int traverse(int s) {
+        final int[] offsets = index.offsets;
+        final int[] targets = index.targets;
+        final int[] order = this.order;
+        final int[] d = this.d;
+        final double[] theta = this.theta;
+        theta[s] = 1;
+        d[s] = 0;
+        order[0] = s;
+        int head = 0;
+        int tail = 1;
+        long relaxed = 0;
+        while (head < tail) {
+            int v = order[head++];
+            int dv = d[v] + 1;
+            relaxed += offsets[v + 1] - offsets[v];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int r = targets[e];
+                if (d[r] < 0) {
+                    order[tail++] = r;
+                    d[r] = dv;
+                }
+                if (d[r] == dv) {
+                    theta[r] += theta[v];
+                }
+            }
+        }
+        sums.edgesRelaxed += relaxed;
+        return tail;
+    }
+
+    /**
+     * Pulls the dependencies of v from its successors, which are all
+     * popped before v, so no predecessor lists are needed.
+     *
+     * @return delta(v), F_2.. being left in far[bv..]
+     */
+    double pull(int v, int lv, int bv) {
+        final int[] offsets = index.offsets;
+        final int[] targets = index.targets;
+        final int[] d = this.d;
+        int dw = d[v] + 1;
+        double deltaV = 0;
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            int w = targets[e];
+            if (d[w] == dw) {
+                deltaV += successor(v, w, lv, bv);
+            }
+        }
+        return deltaV;
+    }
+
+    //adds successor w to the F_j of v, returns its share of delta(v)
+    final double successor(int v, int w, int lv, int bv) {
+        double coef = theta[v] / theta[w];
+        if (lv > 1) {
+            final double[] far = this.far;
+            far[bv] += coef * delta[w];
+            int bw = base[w] - 1;
+            for (int j = 1; j < lv - 1; j++) {
+                far[bv + j] += coef * far[bw + j];
+            }
+        }
+        return coef * (1 + delta[w]);
+    }
+}
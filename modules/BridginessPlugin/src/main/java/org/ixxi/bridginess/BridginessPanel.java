@@ -11,6 +11,8 @@
 
 package org.ixxi.bridginess;
 
+import java.io.File;
+
 /**
  *
  * @author matteo
@@ -22,20 +24,225 @@ public class BridginessPanel extends javax.swing.JPanel {
         initComponents();
     }
     
-    public int getExclNeighbors() {
-        return jSliderExclNeighbors.getValue();
+    /**
+     * @throws NumberFormatException if the field is not a list of radii
+     */
+    public int[] getExclNeighbors() {
+        return Bridginess.parseIntList(jTextFieldExclNeighbors.getText());
+    }
+
+    void setExclNeighbors(int[] exclNeighbors) {
+        jTextFieldExclNeighbors.setText(Bridginess.formatIntList(exclNeighbors));
+    }
+    
+    /**
+     * @throws NumberFormatException if the field is not a list of lengths
+     */
+    public int[] getMinPathLengths() {
+        return Bridginess.parseIntList(jTextFieldPathLengths.getText());
+    }
+
+    void setMinPathLengths(int[] minPathLengths) {
+        jTextFieldPathLengths.setText(Bridginess.formatIntList(minPathLengths));
+    }
+
+    /**
+     * @throws NumberFormatException if the field is not a list of distances
+     */
+    public double[] getWeightedMinPathLengths() {
+        return Bridginess.parseDoubleList(jTextFieldPathLengths.getText());
+    }
+
+    void setWeightedMinPathLengths(double[] minPathLengths) {
+        jTextFieldPathLengths.setText(Bridginess.formatDoubleList(minPathLengths));
+    }
+
+    /**
+     * @throws NumberFormatException if the field is not a list of distances
+     */
+    public double[] getWeightedExclNeighbors() {
+        return Bridginess.parseDoubleList(jTextFieldExclNeighbors.getText());
+    }
+
+    void setWeightedExclNeighbors(double[] exclNeighbors) {
+        jTextFieldExclNeighbors.setText(Bridginess.formatDoubleList(exclNeighbors));
+    }
+    
+    public int getThreads() {
+        return (Integer) jSpinnerThreads.getValue();
+    }
+
+    void setThreads(int threads) {
+        jSpinnerThreads.setValue(threads);
+    }
+
+    public boolean isWeighted() {
+        return jCheckBoxWeighted.isSelected();
+    }
+
+    void setWeighted(boolean weighted) {
+        jCheckBoxWeighted.setSelected(weighted);
+    }
+    
+    public boolean isApproximate() {
+        return jCheckBoxApproximate.isSelected();
+    }
+
+    void setApproximate(boolean approximate) {
+        jCheckBoxApproximate.setSelected(approximate);
+    }
+    
+    public double getTargetError() {
+        return (Double) jSpinnerTargetError.getValue();
     }
 
-    void setExclNeighbors(int exclNeighbors) {
-        jSliderExclNeighbors.setValue(exclNeighbors);
+    void setTargetError(double targetError) {
+        jSpinnerTargetError.setValue(targetError);
     }
     
-    public int getMinPathLength() {
-        return jSliderPathLength.getValue();
+    public boolean isStratified() {
+        return jCheckBoxStratified.isSelected();
+    }
+
+    void setStratified(boolean stratified) {
+        jCheckBoxStratified.setSelected(stratified);
+    }
+
+    public boolean isAnytime() {
+        return jCheckBoxAnytime.isSelected();
+    }
+
+    void setAnytime(boolean anytime) {
+        jCheckBoxAnytime.setSelected(anytime);
+    }
+
+    /**
+     * Fills the partition choice with the node column ids that can hold one.
+     */
+    void setPartitionColumns(String[] columns, String selected) {
+        jComboBoxPartition.setModel(new javax.swing.DefaultComboBoxModel(columns));
+        jComboBoxPartition.setSelectedItem(selected);
+    }
+
+    public String getPartitionColumn() {
+        return (String) jComboBoxPartition.getSelectedItem();
+    }
+
+    public int getStirlingTopK() {
+        return (Integer) jSpinnerTopK.getValue();
+    }
+
+    void setStirlingTopK(int topK) {
+        jSpinnerTopK.setValue(topK);
+    }
+
+    //seconds, 0 for no budget
+    public int getTimeBudget() {
+        return (Integer) jSpinnerTimeBudget.getValue();
+    }
+
+    void setTimeBudget(int seconds) {
+        jSpinnerTimeBudget.setValue(seconds);
+    }
+
+    public boolean isWriteBetweenness() {
+        return jCheckBoxWriteBetweenness.isSelected();
+    }
+
+    void setWriteBetweenness(boolean write) {
+        jCheckBoxWriteBetweenness.setSelected(write);
+    }
+
+    public boolean isWriteMSP() {
+        return jCheckBoxWriteMSP.isSelected();
+    }
+
+    void setWriteMSP(boolean write) {
+        jCheckBoxWriteMSP.setSelected(write);
+    }
+
+    public boolean isWriteEXN() {
+        return jCheckBoxWriteEXN.isSelected();
+    }
+
+    void setWriteEXN(boolean write) {
+        jCheckBoxWriteEXN.setSelected(write);
+    }
+
+    public boolean isWriteEntropy() {
+        return jCheckBoxWriteEntropy.isSelected();
+    }
+
+    void setWriteEntropy(boolean write) {
+        jCheckBoxWriteEntropy.setSelected(write);
+    }
+
+    public boolean isWriteStirling() {
+        return jCheckBoxWriteStirling.isSelected();
+    }
+
+    void setWriteStirling(boolean write) {
+        jCheckBoxWriteStirling.setSelected(write);
+    }
+
+    public boolean isComputeBetweenness() {
+        return jCheckBoxComputeBetweenness.isSelected();
+    }
+
+    void setComputeBetweenness(boolean compute) {
+        jCheckBoxComputeBetweenness.setSelected(compute);
+    }
+
+    public boolean isComputeMSP() {
+        return jCheckBoxComputeMSP.isSelected();
+    }
+
+    void setComputeMSP(boolean compute) {
+        jCheckBoxComputeMSP.setSelected(compute);
+    }
+
+    public boolean isComputeEXN() {
+        return jCheckBoxComputeEXN.isSelected();
+    }
+
+    void setComputeEXN(boolean compute) {
+        jCheckBoxComputeEXN.setSelected(compute);
+    }
+
+    public boolean isComputeEntropy() {
+        return jCheckBoxComputeEntropy.isSelected();
+    }
+
+    void setComputeEntropy(boolean compute) {
+        jCheckBoxComputeEntropy.setSelected(compute);
+    }
+
+    public boolean isComputeStirling() {
+        return jCheckBoxComputeStirling.isSelected();
+    }
+
+    void setComputeStirling(boolean compute) {
+        jCheckBoxComputeStirling.setSelected(compute);
+    }
+
+    /**
+     * @return the checkpoint file, <code>null</code> if left blank
+     */
+    public File getCheckpointFile() {
+        String path = jTextFieldCheckpoint.getText().trim();
+        return path.isEmpty() ? null : new File(path);
+    }
+
+    void setCheckpointFile(File file) {
+        jTextFieldCheckpoint.setText(file == null ? "" : file.getPath());
+    }
+
+    public boolean isResume() {
+        return jCheckBoxResume.isSelected();
     }
 
-    void setMinPathLength(int minPathLength) {
-        jSliderPathLength.setValue(minPathLength);
+    void setResume(boolean resume) {
+        jCheckBoxResume.setSelected(resume);
     }
     /** This method is called from within the constructor to
      * initialize the form.
@@ -47,22 +254,45 @@ public class BridginessPanel extends javax.swing.JPanel {
     // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
     private void initComponents() {
 
-        jSliderPathLength = new javax.swing.JSlider();
+        jTextFieldPathLengths = new javax.swing.JTextField();
         jLabel1 = new javax.swing.JLabel();
         jLabel2 = new javax.swing.JLabel();
-        jSliderExclNeighbors = new javax.swing.JSlider();
+        jTextFieldExclNeighbors = new javax.swing.JTextField();
         jSeparator1 = new javax.swing.JSeparator();
         jLabel3 = new javax.swing.JLabel();
         jSeparator2 = new javax.swing.JSeparator();
+        jLabel4 = new javax.swing.JLabel();
+        jSpinnerThreads = new javax.swing.JSpinner();
+        jCheckBoxWeighted = new javax.swing.JCheckBox();
+        jCheckBoxApproximate = new javax.swing.JCheckBox();
+        jLabel5 = new javax.swing.JLabel();
+        jSpinnerTargetError = new javax.swing.JSpinner();
+        jCheckBoxStratified = new javax.swing.JCheckBox();
+        jCheckBoxAnytime = new javax.swing.JCheckBox();
+        jLabel6 = new javax.swing.JLabel();
+        jSpinnerTimeBudget = new javax.swing.JSpinner();
+        jLabel7 = new javax.swing.JLabel();
+        jComboBoxPartition = new javax.swing.JComboBox();
+        jLabel8 = new javax.swing.JLabel();
+        jSpinnerTopK = new javax.swing.JSpinner();
+        jLabel9 = new javax.swing.JLabel();
+        jCheckBoxWriteBetweenness = new javax.swing.JCheckBox();
+        jCheckBoxWriteMSP = new javax.swing.JCheckBox();
+        jCheckBoxWriteEXN = new javax.swing.JCheckBox();
+        jCheckBoxWriteEntropy = new javax.swing.JCheckBox();
+        jCheckBoxWriteStirling = new javax.swing.JCheckBox();
+        jLabel10 = new javax.swing.JLabel();
+        jCheckBoxComputeBetweenness = new javax.swing.JCheckBox();
+        jCheckBoxComputeMSP = new javax.swing.JCheckBox();
+        jCheckBoxComputeEXN = new javax.swing.JCheckBox();
+        jCheckBoxComputeEntropy = new javax.swing.JCheckBox();
+        jCheckBoxComputeStirling = new javax.swing.JCheckBox();
+        jLabel11 = new javax.swing.JLabel();
+        jTextFieldCheckpoint = new javax.swing.JTextField();
+        jCheckBoxResume = new javax.swing.JCheckBox();
 
-        jSliderPathLength.setMajorTickSpacing(1);
-        jSliderPathLength.setMaximum(5);
-        jSliderPathLength.setMinimum(3);
-        jSliderPathLength.setPaintLabels(true);
-        jSliderPathLength.setPaintTicks(true);
-        jSliderPathLength.setSnapToTicks(true);
-        jSliderPathLength.setValue(3);
-        jSliderPathLength.setName(""); // NOI18N
+        jTextFieldPathLengths.setText("3, 4, 5"); // NOI18N
+        jTextFieldPathLengths.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jTextFieldPathLengths.toolTipText")); // NOI18N
 
         jLabel1.setHorizontalAlignment(javax.swing.SwingConstants.LEFT);
         jLabel1.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel1.text")); // NOI18N
@@ -70,18 +300,91 @@ public class BridginessPanel extends javax.swing.JPanel {
 
         jLabel2.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel2.text")); // NOI18N
 
-        jSliderExclNeighbors.setMajorTickSpacing(1);
-        jSliderExclNeighbors.setMaximum(1);
-        jSliderExclNeighbors.setMinimum(1);
-        jSliderExclNeighbors.setPaintLabels(true);
-        jSliderExclNeighbors.setPaintTicks(true);
-        jSliderExclNeighbors.setSnapToTicks(true);
-        jSliderExclNeighbors.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jSliderExclNeighbors.toolTipText")); // NOI18N
+        jTextFieldExclNeighbors.setText("1"); // NOI18N
+        jTextFieldExclNeighbors.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jTextFieldExclNeighbors.toolTipText")); // NOI18N
 
         jLabel3.setHorizontalAlignment(javax.swing.SwingConstants.LEFT);
         jLabel3.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel3.text")); // NOI18N
         jLabel3.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel3.toolTipText")); // NOI18N
 
+        jLabel4.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel4.text")); // NOI18N
+
+        jSpinnerThreads.setModel(new javax.swing.SpinnerNumberModel(1, 1, 256, 1));
+        jSpinnerThreads.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jSpinnerThreads.toolTipText")); // NOI18N
+
+        jCheckBoxWeighted.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxWeighted.text")); // NOI18N
+        jCheckBoxWeighted.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxWeighted.toolTipText")); // NOI18N
+
+        jCheckBoxApproximate.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxApproximate.text")); // NOI18N
+        jCheckBoxApproximate.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxApproximate.toolTipText")); // NOI18N
+
+        jLabel5.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel5.text")); // NOI18N
+
+        jSpinnerTargetError.setModel(new javax.swing.SpinnerNumberModel(0.01d, 0.001d, 0.5d, 0.005d));
+        jSpinnerTargetError.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jSpinnerTargetError.toolTipText")); // NOI18N
+
+        jCheckBoxStratified.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxStratified.text")); // NOI18N
+
+        jCheckBoxAnytime.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxAnytime.text")); // NOI18N
+        jCheckBoxAnytime.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxAnytime.toolTipText")); // NOI18N
+
+        jLabel6.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel6.text")); // NOI18N
+
+        jSpinnerTimeBudget.setModel(new javax.swing.SpinnerNumberModel(0, 0, 86400, 10));
+        jSpinnerTimeBudget.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jSpinnerTimeBudget.toolTipText")); // NOI18N
+
+        jLabel7.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel7.text")); // NOI18N
+
+        jComboBoxPartition.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "modularity_class" }));
+        jComboBoxPartition.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jComboBoxPartition.toolTipText")); // NOI18N
+
+        jLabel8.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel8.text")); // NOI18N
+
+        jSpinnerTopK.setModel(new javax.swing.SpinnerNumberModel(0, 0, 100000, 1));
+        jSpinnerTopK.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jSpinnerTopK.toolTipText")); // NOI18N
+
+        jLabel9.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel9.text")); // NOI18N
+
+        jCheckBoxWriteBetweenness.setSelected(true);
+        jCheckBoxWriteBetweenness.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxWriteBetweenness.text")); // NOI18N
+
+        jCheckBoxWriteMSP.setSelected(true);
+        jCheckBoxWriteMSP.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxWriteMSP.text")); // NOI18N
+
+        jCheckBoxWriteEXN.setSelected(true);
+        jCheckBoxWriteEXN.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxWriteEXN.text")); // NOI18N
+
+        jCheckBoxWriteEntropy.setSelected(true);
+        jCheckBoxWriteEntropy.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxWriteEntropy.text")); // NOI18N
+
+        jCheckBoxWriteStirling.setSelected(true);
+        jCheckBoxWriteStirling.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxWriteStirling.text")); // NOI18N
+
+        jLabel10.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel10.text")); // NOI18N
+
+        jCheckBoxComputeBetweenness.setSelected(true);
+        jCheckBoxComputeBetweenness.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxComputeBetweenness.text")); // NOI18N
+
+        jCheckBoxComputeMSP.setSelected(true);
+        jCheckBoxComputeMSP.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxComputeMSP.text")); // NOI18N
+
+        jCheckBoxComputeEXN.setSelected(true);
+        jCheckBoxComputeEXN.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxComputeEXN.text")); // NOI18N
+
+        jCheckBoxComputeEntropy.setSelected(true);
+        jCheckBoxComputeEntropy.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxComputeEntropy.text")); // NOI18N
+
+        jCheckBoxComputeStirling.setSelected(true);
+        jCheckBoxComputeStirling.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxComputeStirling.text")); // NOI18N
+
+        jLabel11.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jLabel11.text")); // NOI18N
+
+        jTextFieldCheckpoint.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jTextFieldCheckpoint.text")); // NOI18N
+        jTextFieldCheckpoint.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jTextFieldCheckpoint.toolTipText")); // NOI18N
+
+        jCheckBoxResume.setText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxResume.text")); // NOI18N
+        jCheckBoxResume.setToolTipText(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jCheckBoxResume.toolTipText")); // NOI18N
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -93,8 +396,66 @@ public class BridginessPanel extends javax.swing.JPanel {
                     .addComponent(jSeparator2)
                     .addGroup(layout.createSequentialGroup()
                         .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                            .addComponent(jSliderPathLength, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
-                            .addComponent(jSliderExclNeighbors, javax.swing.GroupLayout.PREFERRED_SIZE, 517, javax.swing.GroupLayout.PREFERRED_SIZE)
+                            .addComponent(jTextFieldPathLengths, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                            .addComponent(jTextFieldExclNeighbors, javax.swing.GroupLayout.PREFERRED_SIZE, 517, javax.swing.GroupLayout.PREFERRED_SIZE)
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jLabel4)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jSpinnerThreads, javax.swing.GroupLayout.PREFERRED_SIZE, 60, javax.swing.GroupLayout.PREFERRED_SIZE)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxWeighted))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jCheckBoxApproximate)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jLabel5)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jSpinnerTargetError, javax.swing.GroupLayout.PREFERRED_SIZE, 70, javax.swing.GroupLayout.PREFERRED_SIZE)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxStratified))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jCheckBoxAnytime)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jLabel6)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jSpinnerTimeBudget, javax.swing.GroupLayout.PREFERRED_SIZE, 70, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jLabel7)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jComboBoxPartition, javax.swing.GroupLayout.PREFERRED_SIZE, 200, javax.swing.GroupLayout.PREFERRED_SIZE)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jLabel8)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jSpinnerTopK, javax.swing.GroupLayout.PREFERRED_SIZE, 60, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jLabel9)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxWriteBetweenness)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxWriteMSP)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxWriteEXN)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxWriteEntropy)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxWriteStirling))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jLabel10)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxComputeBetweenness)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxComputeMSP)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxComputeEXN)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxComputeEntropy)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxComputeStirling))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jLabel11)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jTextFieldCheckpoint, javax.swing.GroupLayout.PREFERRED_SIZE, 240, javax.swing.GroupLayout.PREFERRED_SIZE)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(jCheckBoxResume))
                             .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, layout.createSequentialGroup()
                                 .addComponent(jLabel2, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
@@ -110,7 +471,7 @@ public class BridginessPanel extends javax.swing.JPanel {
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, layout.createSequentialGroup()
                 .addGap(35, 35, 35)
-                .addComponent(jSliderPathLength, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addComponent(jTextFieldPathLengths, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jLabel2, javax.swing.GroupLayout.PREFERRED_SIZE, 29, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
@@ -120,7 +481,50 @@ public class BridginessPanel extends javax.swing.JPanel {
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jLabel1)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addComponent(jSliderExclNeighbors, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addComponent(jTextFieldExclNeighbors, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel4)
+                    .addComponent(jSpinnerThreads, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jCheckBoxWeighted))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jCheckBoxApproximate)
+                    .addComponent(jLabel5)
+                    .addComponent(jSpinnerTargetError, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jCheckBoxStratified))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jCheckBoxAnytime)
+                    .addComponent(jLabel6)
+                    .addComponent(jSpinnerTimeBudget, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel7)
+                    .addComponent(jComboBoxPartition, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabel8)
+                    .addComponent(jSpinnerTopK, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel9)
+                    .addComponent(jCheckBoxWriteBetweenness)
+                    .addComponent(jCheckBoxWriteMSP)
+                    .addComponent(jCheckBoxWriteEXN)
+                    .addComponent(jCheckBoxWriteEntropy)
+                    .addComponent(jCheckBoxWriteStirling))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel10)
+                    .addComponent(jCheckBoxComputeBetweenness)
+                    .addComponent(jCheckBoxComputeMSP)
+                    .addComponent(jCheckBoxComputeEXN)
+                    .addComponent(jCheckBoxComputeEntropy)
+                    .addComponent(jCheckBoxComputeStirling))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel11)
+                    .addComponent(jTextFieldCheckpoint, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jCheckBoxResume))
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
             .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                 .addGroup(layout.createSequentialGroup()
@@ -128,19 +532,46 @@ public class BridginessPanel extends javax.swing.JPanel {
                     .addComponent(jLabel3)
                     .addContainerGap(272, Short.MAX_VALUE)))
         );
-
-        jSliderPathLength.getAccessibleContext().setAccessibleName(org.openide.util.NbBundle.getMessage(BridginessPanel.class, "BridginessPanel.jSliderPathLength.AccessibleContext.accessibleName")); // NOI18N
     }// </editor-fold>//GEN-END:initComponents
 
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.JCheckBox jCheckBoxAnytime;
+    private javax.swing.JCheckBox jCheckBoxApproximate;
+    private javax.swing.JCheckBox jCheckBoxComputeBetweenness;
+    private javax.swing.JCheckBox jCheckBoxComputeEXN;
+    private javax.swing.JCheckBox jCheckBoxComputeEntropy;
+    private javax.swing.JCheckBox jCheckBoxComputeMSP;
+    private javax.swing.JCheckBox jCheckBoxComputeStirling;
+    private javax.swing.JCheckBox jCheckBoxResume;
+    private javax.swing.JCheckBox jCheckBoxStratified;
+    private javax.swing.JCheckBox jCheckBoxWeighted;
+    private javax.swing.JCheckBox jCheckBoxWriteBetweenness;
+    private javax.swing.JCheckBox jCheckBoxWriteEXN;
+    private javax.swing.JCheckBox jCheckBoxWriteEntropy;
+    private javax.swing.JCheckBox jCheckBoxWriteMSP;
+    private javax.swing.JCheckBox jCheckBoxWriteStirling;
+    private javax.swing.JComboBox jComboBoxPartition;
+    private javax.swing.JLabel jLabel10;
+    private javax.swing.JLabel jLabel11;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel3;
+    private javax.swing.JLabel jLabel4;
+    private javax.swing.JLabel jLabel5;
+    private javax.swing.JLabel jLabel6;
+    private javax.swing.JLabel jLabel7;
+    private javax.swing.JLabel jLabel8;
+    private javax.swing.JLabel jLabel9;
     private javax.swing.JSeparator jSeparator1;
     private javax.swing.JSeparator jSeparator2;
-    private javax.swing.JSlider jSliderExclNeighbors;
-    private javax.swing.JSlider jSliderPathLength;
+    private javax.swing.JSpinner jSpinnerTargetError;
+    private javax.swing.JSpinner jSpinnerThreads;
+    private javax.swing.JSpinner jSpinnerTimeBudget;
+    private javax.swing.JSpinner jSpinnerTopK;
+    private javax.swing.JTextField jTextFieldCheckpoint;
+    private javax.swing.JTextField jTextFieldExclNeighbors;
+    private javax.swing.JTextField jTextFieldPathLengths;
     // End of variables declaration//GEN-END:variables
 
 }
@@ -0,0 +1,544 @@
+package org.ixxi.bridginess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeController;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphController;
+import org.gephi.graph.api.GraphFactory;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.io.importer.api.Container;
+import org.gephi.io.importer.api.EdgeDefault;
+import org.gephi.io.importer.api.ImportController;
+import org.gephi.io.processor.plugin.DefaultProcessor;
+import org.gephi.project.api.ProjectController;
+import org.gephi.project.api.Workspace;
+import org.openide.util.Lookup;
+
+/**
+ * Headless entry point: loads a graph file with the Gephi toolkit, runs
+ * {@link Bridginess} and writes one CSV row per node.
+ * <pre>
+ * java -cp gephi-toolkit.jar:bridginess.jar org.ixxi.bridginess.BridginessRunner \
+ *     graph.gexf -o bridginess.csv --threads 64 --msp 3,4,5
+ * </pre>
+ * GEXF, GraphML and the other Gephi formats go through the toolkit
+ * importers. Files ending in .txt, .edges, .el or .tsv are read as edge
+ * lists, one "source target [weight]" line per edge. Lines starting with #
+ * or % are skipped.
+ * <p>
+ * With <code>--mapped FILE</code> the graph is first written to a
+ * {@link MappedGraph} file, or reused if it was made from the input at its
+ * current size and modification time, and the run reads it from there: edge lists are converted without ever building
+ * a Gephi graph, so their size is bounded by the disk rather than the heap.
+ *
+ * @author MM@IXXI
+ */
+public final class BridginessRunner {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String USAGE =
+            "Usage: BridginessRunner <graph file> [options]\n"
+            + "  -o, --output FILE        CSV output, standard output if absent or -\n"
+            + "  --format edgelist        read as an edge list whatever the extension\n"
+            + "  --directed               directed edges (edge lists, and overrides the file)\n"
+            + "  --undirected             undirected edges\n"
+            + "  --weighted               shortest paths on edge weights\n"
+            + "  --threads N              Brandes workers (default: all processors)\n"
+            + "  --msp K1,K2,...          minimum path lengths, or ranges like 2-10 (default: 3,4,5),\n"
+            + "                           decimal distances with --weighted\n"
+            + "  --exn R1,R2,...          excluded neighbours radii, or ranges like 1-3 (default: 1),\n"
+            + "                           decimal distances with --weighted\n"
+            + "  --partition COLUMN       node column of the communities (default: modularity_class)\n"
+            + "  --stirling-top-k K       heaviest communities per node in Stirling, 0 for all\n"
+            + "  --approximate ERROR      sample sources for this relative error\n"
+            + "  --stratified             degree-stratified sampling\n"
+            + "  --confidence C           sampling confidence (default: 0.95)\n"
+            + "  --time-budget SECONDS    anytime run, stops after this time\n"
+            + "  --seed S                 sampling seed\n"
+            + "  --write M1,M2,...        metrics written and output among betweenness, msp, exn,\n"
+            + "                           entropy, stirling (default: all)\n"
+            + "  --compute M1,M2,...      metrics computed, same names, the passes of the others\n"
+            + "                           are skipped (default: all)\n"
+            + "  --checkpoint FILE        save the partial sums there every interval and on interrupt\n"
+            + "  --checkpoint-interval S  seconds between checkpoints (default: 300)\n"
+            + "  --resume                 start from the checkpoint if it matches the graph\n"
+            + "  --no-prune               traverse from every node, hanging trees included\n"
+            + "  --mapped FILE            run on a memory-mapped copy of the graph in FILE, built if\n"
+            + "                           missing or not a copy of the input as it is (hops,\n"
+            + "                           betweenness, msp and exn only)\n"
+            + "  --report FILE            also write the HTML report\n";
+
+    private BridginessRunner() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            System.exit(run(args));
+        } catch (UsageException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        } catch (IllegalArgumentException ex) {
+            //from the run, the command line was fine
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs with the command line <code>args</code>.
+     *
+     * @return the process exit code
+     */
+    static int run(String[] args) throws IOException {
+        File input = null;
+        String output = "-";
+        String format = null;
+        String report = null;
+        Boolean directed = null;
+        //settings are applied once the graph is loaded, Bridginess reads the
+        //graph model when created
+        HashMap<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                System.out.print(USAGE);
+                return 0;
+            } else if (arg.equals("--directed")) {
+                directed = Boolean.TRUE;
+            } else if (arg.equals("--undirected")) {
+                directed = Boolean.FALSE;
+            } else if (arg.equals("--weighted") || arg.equals("--stratified") || arg.equals("--resume")
+                    || arg.equals("--no-prune")) {
+                options.put(arg, "true");
+            } else if (arg.startsWith("-")) {
+                if (i + 1 == args.length) {
+                    throw new UsageException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                if (arg.equals("-o") || arg.equals("--output")) {
+                    output = value;
+                } else if (arg.equals("--format")) {
+                    format = value.toLowerCase(Locale.ROOT);
+                } else if (arg.equals("--report")) {
+                    report = value;
+                } else {
+                    options.put(arg, value);
+                }
+            } else if (input == null) {
+                input = new File(arg);
+            } else {
+                throw new UsageException("Unexpected argument " + arg);
+            }
+        }
+        if (input == null) {
+            throw new UsageException("No graph file given");
+        }
+        if (format == null) {
+            format = isEdgeList(input.getName()) ? "edgelist" : "";
+        }
+        String mapped = options.remove("--mapped");
+        if (mapped != null) {
+            return runMapped(input, format, directed, new File(mapped), options, output, report);
+        }
+
+        Workspace workspace = load(input, format, directed);
+        GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getModel(workspace);
+        AttributeModel attributeModel = Lookup.getDefault().lookup(AttributeController.class).getModel(workspace);
+
+        Bridginess bridginess = new Bridginess();
+        if (directed != null) {
+            bridginess.setDirected(directed);
+        }
+        configure(bridginess, options);
+        Thread hook = null;
+        final CountDownLatch finished = new CountDownLatch(1);
+        if (bridginess.getCheckpointFile() != null) {
+            //an interrupted run saves a last checkpoint before the JVM exits
+            final Bridginess running = bridginess;
+            hook = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    running.cancel();
+                    try {
+                        finished.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "Bridginess checkpoint");
+            Runtime.getRuntime().addShutdownHook(hook);
+        }
+        try {
+            bridginess.execute(graphModel, attributeModel);
+        } finally {
+            finished.countDown();
+            if (hook != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(hook);
+                } catch (IllegalStateException ex) {
+                    //already shutting down
+                }
+            }
+        }
+        if (bridginess.isCanceled()) {
+            return interrupted(bridginess);
+        }
+
+        Writer out = openOutput(output);
+        try {
+            writeCsv(bridginess, graphModel, attributeModel, out);
+        } finally {
+            closeOutput(out, output);
+        }
+        writeReport(bridginess, report);
+        return 0;
+    }
+
+    /**
+     * Runs on the mapped copy of <code>input</code> in <code>file</code>.
+     */
+    private static int runMapped(File input, String format, Boolean directed, File file,
+            HashMap<String, String> options, String output, String report) throws IOException {
+        if (options.containsKey("--weighted")) {
+            throw new UsageException("--weighted does not apply to --mapped, mapped graphs are run on hops");
+        }
+        //options checked before anything is built, directedness is the mapped graph's
+        Bridginess bridginess = new Bridginess();
+        configure(bridginess, options);
+        MappedGraph graph = null;
+        if (file.isFile()) {
+            try {
+                graph = MappedGraph.open(file);
+            } catch (IOException ex) {
+                //older format or broken, built again
+            }
+            //a copy of another version of the input, or the other way round
+            if (graph != null && (!graph.isCopyOf(input) || directed != null && graph.isDirected() != directed)) {
+                graph = null;
+            }
+        }
+        if (graph == null && format.equals("edgelist")) {
+            graph = MappedGraph.build(input, file, directed != null && directed);
+        } else if (graph == null) {
+            //through the importers, then off the heap before the run
+            Workspace workspace = load(input, format, directed);
+            GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getModel(workspace);
+            boolean isDirected = directed != null ? directed : graphModel.isDirected();
+            HierarchicalGraph hgraph = isDirected
+                    ? graphModel.getHierarchicalDirectedGraphVisible()
+                    : graphModel.getHierarchicalUndirectedGraphVisible();
+            GraphIndex index;
+            hgraph.readLock();
+            try {
+                index = GraphIndex.build(hgraph, isDirected);
+            } finally {
+                hgraph.readUnlock();
+            }
+            graph = MappedGraph.save(index, file, isDirected, input);
+            index = null;
+            Lookup.getDefault().lookup(ProjectController.class).closeCurrentProject();
+        }
+
+        bridginess.execute(graph);
+        if (bridginess.isCanceled()) {
+            return interrupted(bridginess);
+        }
+
+        Writer out = openOutput(output);
+        try {
+            writeCsv(bridginess, graph, out);
+        } finally {
+            closeOutput(out, output);
+        }
+        writeReport(bridginess, report);
+        return 0;
+    }
+
+    //a cancelled run has no results, writing zeros would pass for them
+    private static int interrupted(Bridginess bridginess) {
+        System.err.println("Interrupted, no results written"
+                + (bridginess.getCheckpointFile() == null ? ""
+                : ", the sources done are in " + bridginess.getCheckpointFile() + ", run again with --resume"));
+        return 1;
+    }
+
+    /**
+     * Loads <code>input</code> into a new project.
+     *
+     * @return the workspace holding the graph
+     */
+    private static Workspace load(File input, String format, Boolean directed) throws IOException {
+        ProjectController projects = Lookup.getDefault().lookup(ProjectController.class);
+        projects.newProject();
+        Workspace workspace = projects.getCurrentWorkspace();
+        if (format.equals("edgelist")) {
+            GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getModel(workspace);
+            readEdgeList(input, graphModel, directed != null && directed);
+        } else {
+            ImportController importer = Lookup.getDefault().lookup(ImportController.class);
+            Container container = importer.importFile(input);
+            if (container == null) {
+                throw new IOException("No importer for " + input);
+            }
+            if (directed != null) {
+                container.getLoader().setEdgeDefault(directed ? EdgeDefault.DIRECTED : EdgeDefault.UNDIRECTED);
+            }
+            importer.process(container, new DefaultProcessor(), workspace);
+        }
+        return workspace;
+    }
+
+    private static Writer openOutput(String output) throws IOException {
+        return output.equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, UTF8))
+                : new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), UTF8));
+    }
+
+    //standard output stays open
+    private static void closeOutput(Writer out, String output) throws IOException {
+        if (output.equals("-")) {
+            out.flush();
+        } else {
+            out.close();
+        }
+    }
+
+    private static void writeReport(Bridginess bridginess, String report) throws IOException {
+        if (report == null) {
+            return;
+        }
+        Writer html = new OutputStreamWriter(new FileOutputStream(report), UTF8);
+        try {
+            html.write(bridginess.getReport());
+        } finally {
+            html.close();
+        }
+    }
+
+    private static void configure(Bridginess bridginess, HashMap<String, String> options) {
+        for (String key : options.keySet()) {
+            String value = options.get(key);
+            try {
+                if (key.equals("--weighted")) {
+                    bridginess.setWeighted(true);
+                } else if (key.equals("--stratified")) {
+                    bridginess.setStratified(true);
+                } else if (key.equals("--threads")) {
+                    bridginess.setThreads(Integer.parseInt(value));
+                } else if (key.equals("--msp") && options.containsKey("--weighted")) {
+                    bridginess.setWeightedMinPathLengths(Bridginess.parseDoubleList(value));
+                } else if (key.equals("--msp")) {
+                    bridginess.setMinPathLengths(Bridginess.parseIntList(value));
+                } else if (key.equals("--exn") && options.containsKey("--weighted")) {
+                    bridginess.setWeightedExclNeighbors(Bridginess.parseDoubleList(value));
+                } else if (key.equals("--exn")) {
+                    bridginess.setExclNeighbors(Bridginess.parseIntList(value));
+                } else if (key.equals("--partition")) {
+                    bridginess.setPartitionColumn(value);
+                } else if (key.equals("--stirling-top-k")) {
+                    bridginess.setStirlingTopK(Integer.parseInt(value));
+                } else if (key.equals("--approximate")) {
+                    bridginess.setApproximate(true);
+                    bridginess.setTargetError(Double.parseDouble(value));
+                } else if (key.equals("--confidence")) {
+                    bridginess.setConfidence(Double.parseDouble(value));
+                } else if (key.equals("--time-budget")) {
+                    bridginess.setAnytime(true);
+                    bridginess.setTimeBudget(Math.round(1000 * Double.parseDouble(value)));
+                } else if (key.equals("--seed")) {
+                    bridginess.setSeed(Long.parseLong(value));
+                } else if (key.equals("--resume")) {
+                    bridginess.setResume(true);
+                } else if (key.equals("--no-prune")) {
+                    bridginess.setPruneTrees(false);
+                } else if (key.equals("--checkpoint")) {
+                    bridginess.setCheckpointFile(new File(value));
+                } else if (key.equals("--checkpoint-interval")) {
+                    bridginess.setCheckpointInterval(Math.round(1000 * Double.parseDouble(value)));
+                } else if (key.equals("--compute")) {
+                    String list = "," + value.toLowerCase(Locale.ROOT).replace(" ", "") + ",";
+                    bridginess.setComputeBetweenness(list.contains(",betweenness,"));
+                    bridginess.setComputeMSP(list.contains(",msp,"));
+                    bridginess.setComputeEXN(list.contains(",exn,"));
+                    bridginess.setComputeEntropy(list.contains(",entropy,"));
+                    bridginess.setComputeStirling(list.contains(",stirling,"));
+                } else if (key.equals("--write")) {
+                    String list = "," + value.toLowerCase(Locale.ROOT).replace(" ", "") + ",";
+                    bridginess.setWriteBetweenness(list.contains(",betweenness,"));
+                    bridginess.setWriteMSP(list.contains(",msp,"));
+                    bridginess.setWriteEXN(list.contains(",exn,"));
+                    bridginess.setWriteEntropy(list.contains(",entropy,"));
+                    bridginess.setWriteStirling(list.contains(",stirling,"));
+                } else {
+                    throw new UsageException("Unknown option " + key);
+                }
+            } catch (NumberFormatException ex) {
+                throw new UsageException("Bad value for " + key + ": " + value);
+            }
+        }
+    }
+
+    private static boolean isEdgeList(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".txt") || lower.endsWith(".edges") || lower.endsWith(".el")
+                || lower.endsWith(".tsv");
+    }
+
+    /**
+     * Reads "source target [weight]" lines, separated by blanks, tabs or
+     * commas, into the graph of <code>graphModel</code>.
+     */
+    static void readEdgeList(File file, GraphModel graphModel, boolean directed) throws IOException {
+        Graph graph = directed ? graphModel.getDirectedGraph() : graphModel.getUndirectedGraph();
+        GraphFactory factory = graphModel.factory();
+        HashMap<String, Node> nodes = new HashMap<String, Node>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+        try {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("%")) {
+                    continue;
+                }
+                String[] fields = line.split("[\\s,]+");
+                if (fields.length < 2) {
+                    throw new IOException(file + ":" + number + ": expected source and target");
+                }
+                float weight = 1;
+                if (fields.length > 2) {
+                    try {
+                        weight = Float.parseFloat(fields[2]);
+                    } catch (NumberFormatException ex) {
+                        throw new IOException(file + ":" + number + ": bad weight " + fields[2]);
+                    }
+                }
+                Node source = node(fields[0], nodes, graph, factory);
+                Node target = node(fields[1], nodes, graph, factory);
+                graph.addEdge(factory.newEdge(source, target, weight, directed));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Node node(String id, HashMap<String, Node> nodes, Graph graph, GraphFactory factory) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            node = factory.newNode(id);
+            graph.addNode(node);
+            nodes.put(id, node);
+        }
+        return node;
+    }
+
+    /**
+     * Streams one row per node: its id, its label, then the columns written
+     * by the run.
+     */
+    static void writeCsv(Bridginess bridginess, GraphModel graphModel, AttributeModel attributeModel,
+            Writer out) throws IOException {
+        String[] ids = bridginess.getResultColumns();
+        AttributeColumn[] columns = new AttributeColumn[ids.length];
+        out.write("id,label");
+        for (int k = 0; k < ids.length; k++) {
+            columns[k] = attributeModel.getNodeTable().getColumn(ids[k]);
+            out.write(',');
+            out.write(ids[k]);
+        }
+        out.write('\n');
+
+        Graph graph = graphModel.getHierarchicalGraphVisible();
+        graph.readLock();
+        try {
+            for (Node node : graph.getNodes()) {
+                AttributeRow row = (AttributeRow) node.getNodeData().getAttributes();
+                out.write(quote(node.getNodeData().getId()));
+                out.write(',');
+                out.write(quote(node.getNodeData().getLabel()));
+                for (AttributeColumn column : columns) {
+                    out.write(',');
+                    Object value = column == null ? null : row.getValue(column);
+                    if (value != null) {
+                        out.write(value.toString());
+                    }
+                }
+                out.write('\n');
+            }
+        } finally {
+            graph.readUnlock();
+        }
+    }
+
+    /**
+     * Streams one row per node of a mapped run: its id, an empty label,
+     * then the columns computed, empty for the metrics a mapped run leaves
+     * out.
+     */
+    static void writeCsv(Bridginess bridginess, MappedGraph graph, Writer out) throws IOException {
+        String[] ids = bridginess.getResultColumns();
+        double[][] values = new double[ids.length][];
+        out.write("id,label");
+        for (int k = 0; k < ids.length; k++) {
+            values[k] = bridginess.getResult(ids[k]);
+            out.write(',');
+            out.write(ids[k]);
+        }
+        out.write('\n');
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            out.write(quote(graph.getId(v)));
+            out.write(',');
+            for (double[] column : values) {
+                out.write(',');
+                if (column != null) {
+                    out.write(Double.toString(column[v]));
+                }
+            }
+            out.write('\n');
+        }
+    }
+
+    private static String quote(String field) {
+        if (field == null) {
+            return "";
+        }
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * A command line that cannot be run, reported with the usage.
+     */
+    static final class UsageException extends IllegalArgumentException {
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+}
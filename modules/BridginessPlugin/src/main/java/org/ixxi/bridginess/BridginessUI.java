@@ -6,9 +6,14 @@
 package org.ixxi.bridginess;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.JPanel;
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeController;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.statistics.spi.StatisticsUI;
+import org.openide.util.Lookup;
 import org.openide.util.lookup.ServiceProvider;
 
 /**
@@ -31,21 +36,104 @@ public class BridginessUI implements StatisticsUI {
     public void setup(Statistics statistics) {
         this.bridginess = (Bridginess) statistics;
         if (panel != null) {
-            panel.setExclNeighbors(bridginess.getExclNeighbors());
-            panel.setMinPathLength(bridginess.getMinPathLength());
+            //the same fields hold hops or, weighted, distances
+            if (bridginess.isWeighted()) {
+                panel.setWeightedExclNeighbors(bridginess.getWeightedExclNeighbors());
+                panel.setWeightedMinPathLengths(bridginess.getWeightedMinPathLengths());
+            } else {
+                panel.setExclNeighbors(bridginess.getExclNeighborsRadii());
+                panel.setMinPathLengths(bridginess.getMinPathLengths());
+            }
+            panel.setThreads(bridginess.getThreads());
+            panel.setWeighted(bridginess.isWeighted());
+            panel.setApproximate(bridginess.isApproximate());
+            panel.setTargetError(bridginess.getTargetError());
+            panel.setStratified(bridginess.isStratified());
+            panel.setAnytime(bridginess.isAnytime());
+            panel.setTimeBudget((int) (bridginess.getTimeBudget() / 1000));
+            panel.setPartitionColumns(partitionColumns(bridginess.getPartitionColumn()), bridginess.getPartitionColumn());
+            panel.setStirlingTopK(bridginess.getStirlingTopK());
+            panel.setWriteBetweenness(bridginess.isWriteBetweenness());
+            panel.setWriteMSP(bridginess.isWriteMSP());
+            panel.setWriteEXN(bridginess.isWriteEXN());
+            panel.setWriteEntropy(bridginess.isWriteEntropy());
+            panel.setWriteStirling(bridginess.isWriteStirling());
+            panel.setComputeBetweenness(bridginess.isComputeBetweenness());
+            panel.setComputeMSP(bridginess.isComputeMSP());
+            panel.setComputeEXN(bridginess.isComputeEXN());
+            panel.setComputeEntropy(bridginess.isComputeEntropy());
+            panel.setComputeStirling(bridginess.isComputeStirling());
+            panel.setCheckpointFile(bridginess.getCheckpointFile());
+            panel.setResume(bridginess.isResume());
         }
     }
 
     @Override
     public void unsetup() {
         if (panel != null) {
-            bridginess.setExclNeighbors(panel.getExclNeighbors());
-            bridginess.setMinPathLength(panel.getMinPathLength());
+            try {
+                if (panel.isWeighted()) {
+                    bridginess.setWeightedMinPathLengths(panel.getWeightedMinPathLengths());
+                } else {
+                    bridginess.setMinPathLengths(panel.getMinPathLengths());
+                }
+            } catch (NumberFormatException ex) {
+                //keep the previous lengths
+            }
+            try {
+                if (panel.isWeighted()) {
+                    bridginess.setWeightedExclNeighbors(panel.getWeightedExclNeighbors());
+                } else {
+                    bridginess.setExclNeighbors(panel.getExclNeighbors());
+                }
+            } catch (NumberFormatException ex) {
+                //keep the previous radii
+            }
+            bridginess.setThreads(panel.getThreads());
+            bridginess.setWeighted(panel.isWeighted());
+            bridginess.setApproximate(panel.isApproximate());
+            bridginess.setTargetError(panel.getTargetError());
+            bridginess.setStratified(panel.isStratified());
+            bridginess.setAnytime(panel.isAnytime());
+            bridginess.setTimeBudget(1000L * panel.getTimeBudget());
+            if (panel.getPartitionColumn() != null) {
+                bridginess.setPartitionColumn(panel.getPartitionColumn());
+            }
+            bridginess.setStirlingTopK(panel.getStirlingTopK());
+            bridginess.setWriteBetweenness(panel.isWriteBetweenness());
+            bridginess.setWriteMSP(panel.isWriteMSP());
+            bridginess.setWriteEXN(panel.isWriteEXN());
+            bridginess.setWriteEntropy(panel.isWriteEntropy());
+            bridginess.setWriteStirling(panel.isWriteStirling());
+            bridginess.setComputeBetweenness(panel.isComputeBetweenness());
+            bridginess.setComputeMSP(panel.isComputeMSP());
+            bridginess.setComputeEXN(panel.isComputeEXN());
+            bridginess.setComputeEntropy(panel.isComputeEntropy());
+            bridginess.setComputeStirling(panel.isComputeStirling());
+            bridginess.setCheckpointFile(panel.getCheckpointFile());
+            bridginess.setResume(panel.isResume());
         }
         bridginess = null;
         panel = null;
     }
 
+    //node columns of a type a partition fits in, current choice first if missing
+    private String[] partitionColumns(String selected) {
+        List<String> columns = new ArrayList<String>();
+        AttributeController attributeController = Lookup.getDefault().lookup(AttributeController.class);
+        if (attributeController != null && attributeController.getModel() != null) {
+            for (AttributeColumn column : attributeController.getModel().getNodeTable().getColumns()) {
+                if (PartitionMapping.accepts(column.getType())) {
+                    columns.add(column.getId());
+                }
+            }
+        }
+        if (!columns.contains(selected)) {
+            columns.add(0, selected);
+        }
+        return columns.toArray(new String[columns.size()]);
+    }
+
     @Override
     public Class<? extends Statistics> getStatisticsClass() {
         return Bridginess.class;
@@ -0,0 +1,122 @@
+package org.ixxi.bridginess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Partial sums of a Brandes pass with the number of sources they cover, in
+ * a small binary file. The pass folds its chunks in source order and a
+ * stopped pass leaves out every chunk from the first unfinished one on, so
+ * the covered sources are a prefix of the source list and the count is all
+ * a resumed run needs besides the arrays.
+ * <p>
+ * The file is written next to its final name, synced to disk, then moved
+ * over it, so a crash while saving leaves the previous checkpoint intact.
+ *
+ * @author MM@IXXI
+ */
+final class Checkpoint {
+
+    private static final int MAGIC = 0x42524447; //"BRDG"
+    private static final int VERSION = 1;
+
+    final Accumulators sums;
+    final int done;
+
+    private Checkpoint(Accumulators sums, int done) {
+        this.sums = sums;
+        this.done = done;
+    }
+
+    /**
+     * @param key fingerprint of the graph and settings, checked on load
+     */
+    static void save(File file, String key, Accumulators sums, int done) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(sums.betweenness.length);
+            out.writeInt(sums.bridginessMSP.length);
+            out.writeInt(sums.bridginessEXN.length);
+            out.writeInt(done);
+            out.writeLong(sums.shortestPaths);
+            out.writeLong(sums.edgesRelaxed);
+            write(out, sums.betweenness);
+            for (double[] values : sums.bridginessMSP) {
+                write(out, values);
+            }
+            for (double[] values : sums.bridginessEXN) {
+                write(out, values);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the checkpoint in <code>file</code>, <code>null</code> if
+     * there is none or it was made for another graph, other settings or
+     * other array sizes
+     */
+    static Checkpoint load(File file, String key, int n, int minPathLengths, int exclRadii)
+            throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key)
+                    || in.readInt() != n || in.readInt() != minPathLengths || in.readInt() != exclRadii) {
+                return null;
+            }
+            int done = in.readInt();
+            Accumulators sums = new Accumulators(n, minPathLengths, exclRadii);
+            sums.shortestPaths = in.readLong();
+            sums.edgesRelaxed = in.readLong();
+            read(in, sums.betweenness);
+            for (double[] values : sums.bridginessMSP) {
+                read(in, values);
+            }
+            for (double[] values : sums.bridginessEXN) {
+                read(in, values);
+            }
+            return new Checkpoint(sums, done);
+        } finally {
+            in.close();
+        }
+    }
+
+    static void delete(File file) {
+        if (file.isFile() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static void write(DataOutputStream out, double[] values) throws IOException {
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static void read(DataInputStream in, double[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+    }
+}
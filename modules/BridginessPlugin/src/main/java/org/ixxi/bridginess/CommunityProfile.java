@@ -0,0 +1,328 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Edge weights of every node aggregated by neighbouring community, built in
+ * one sweep over a {@link GraphIndex}. Row v lists the communities other
+ * than v's own with the weight v sends to each, the weight staying inside
+ * v's community is kept apart. Node entropy, node Stirling and the
+ * community distances all derive from it.
+ * <p>
+ * Weights between communities are summed from the rows into a second CSR,
+ * one sorted row per community, so memory follows the number of adjacent
+ * community pairs rather than its square.
+ * <p>
+ * Not thread-safe, {@link #stirling(int, int)} works in shared scratch
+ * arrays.
+ *
+ * @author MM@IXXI
+ */
+final class CommunityProfile {
+
+    final int[] community;
+    final int communities;
+    //row v is ids/weights[offsets[v]..offsets[v + 1])
+    final int[] offsets;
+    final int[] ids;
+    final double[] weights;
+    final double[] localWeights;
+    //summed weights between communities, row c is
+    //interIds/interWeights[interOffsets[c]..interOffsets[c + 1]), ids ascending
+    final int[] interOffsets;
+    final int[] interIds;
+    final double[] interWeights;
+    //distance given to communities with no edge between them
+    final double maxDistance;
+
+    //stirling scratch, sized to the longest row plus the own community
+    private final int[] keptIds;
+    private final double[] keptP;
+    private final Integer[] byWeight;
+    private final Integer[] boxed;
+    private final int[] positions;
+    //heaviest first, ties by position
+    private final Comparator<Integer> heavierFirst = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+            int c = Double.compare(keptP[b], keptP[a]);
+            return c != 0 ? c : a.compareTo(b);
+        }
+    };
+
+    private CommunityProfile(int[] community, int communities, int[] offsets, int[] ids,
+            double[] weights, double[] localWeights, int[] interOffsets, int[] interIds,
+            double[] interWeights) {
+        this.community = community;
+        this.communities = communities;
+        this.offsets = offsets;
+        this.ids = ids;
+        this.weights = weights;
+        this.localWeights = localWeights;
+        this.interOffsets = interOffsets;
+        this.interIds = interIds;
+        this.interWeights = interWeights;
+        double minWeight = Double.POSITIVE_INFINITY;
+        for (double w : interWeights) {
+            if (w > 0) {
+                minWeight = Math.min(minWeight, w);
+            }
+        }
+        this.maxDistance = 1 / minWeight;
+        int longest = 0;
+        for (int v = 0; v + 1 < offsets.length; v++) {
+            longest = Math.max(longest, offsets[v + 1] - offsets[v]);
+        }
+        keptIds = new int[longest + 1];
+        keptP = new double[longest + 1];
+        byWeight = new Integer[longest + 1];
+        boxed = new Integer[longest + 1];
+        for (int i = 0; i <= longest; i++) {
+            boxed[i] = i;
+        }
+        positions = new int[longest + 1];
+    }
+
+    /**
+     * @param community community of each node, in 0..communities-1, or -1
+     * for nodes left out
+     */
+    static CommunityProfile build(GraphIndex index, int[] community, int communities) {
+        int n = index.getNodeCount();
+        int[] offsets = new int[n + 1];
+        int[] ids = new int[Math.max(16, n)];
+        double[] weights = new double[ids.length];
+        double[] localWeights = new double[n];
+
+        //dense accumulator over communities, reset through the touched list
+        double[] acc = new double[communities];
+        int[] seen = new int[communities];
+        int[] touched = new int[communities];
+        int slot = 0;
+        for (int v = 0; v < n; v++) {
+            offsets[v] = slot;
+            int cv = community[v];
+            if (cv < 0) {
+                continue;
+            }
+            int size = 0;
+            for (int e = index.offsets[v]; e < index.offsets[v + 1]; e++) {
+                int t = index.targets[e];
+                int ct = community[t];
+                if (t == v || ct < 0) {
+                    continue;
+                }
+                double w = index.weights[e];
+                if (ct == cv) {
+                    localWeights[v] += w;
+                    continue;
+                }
+                if (seen[ct] != v + 1) {
+                    seen[ct] = v + 1;
+                    touched[size++] = ct;
+                }
+                acc[ct] += w;
+            }
+            if (slot + size > ids.length) {
+                int grown = Math.max(slot + size, 2 * ids.length);
+                ids = Arrays.copyOf(ids, grown);
+                weights = Arrays.copyOf(weights, grown);
+            }
+            //ascending community ids within a row
+            Arrays.sort(touched, 0, size);
+            for (int i = 0; i < size; i++) {
+                int c = touched[i];
+                ids[slot] = c;
+                weights[slot] = acc[c];
+                acc[c] = 0;
+                slot++;
+            }
+        }
+        offsets[n] = slot;
+
+        //nodes grouped by community, counting sort
+        int[] members = new int[communities + 1];
+        for (int v = 0; v < n; v++) {
+            if (community[v] >= 0) {
+                members[community[v] + 1]++;
+            }
+        }
+        for (int c = 0; c < communities; c++) {
+            members[c + 1] += members[c];
+        }
+        int[] byCommunity = new int[members[communities]];
+        int[] fill = Arrays.copyOf(members, communities);
+        for (int v = 0; v < n; v++) {
+            if (community[v] >= 0) {
+                byCommunity[fill[community[v]]++] = v;
+            }
+        }
+
+        //community rows merged from their members' rows
+        int[] interOffsets = new int[communities + 1];
+        int[] interIds = new int[Math.max(16, communities)];
+        double[] interWeights = new double[interIds.length];
+        Arrays.fill(seen, 0);
+        int inter = 0;
+        for (int c = 0; c < communities; c++) {
+            interOffsets[c] = inter;
+            int size = 0;
+            for (int m = members[c]; m < members[c + 1]; m++) {
+                int v = byCommunity[m];
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    int ct = ids[i];
+                    if (seen[ct] != c + 1) {
+                        seen[ct] = c + 1;
+                        touched[size++] = ct;
+                    }
+                    acc[ct] += weights[i];
+                }
+            }
+            if (inter + size > interIds.length) {
+                int grown = Math.max(inter + size, 2 * interIds.length);
+                interIds = Arrays.copyOf(interIds, grown);
+                interWeights = Arrays.copyOf(interWeights, grown);
+            }
+            Arrays.sort(touched, 0, size);
+            for (int i = 0; i < size; i++) {
+                int ct = touched[i];
+                interIds[inter] = ct;
+                interWeights[inter] = acc[ct];
+                acc[ct] = 0;
+                inter++;
+            }
+        }
+        interOffsets[communities] = inter;
+
+        return new CommunityProfile(community, communities, offsets,
+                Arrays.copyOf(ids, slot), Arrays.copyOf(weights, slot), localWeights,
+                interOffsets, Arrays.copyOf(interIds, inter), Arrays.copyOf(interWeights, inter));
+    }
+
+    /**
+     * @return the summed weight of the edges from community a to b
+     */
+    double interWeight(int a, int b) {
+        int i = Arrays.binarySearch(interIds, interOffsets[a], interOffsets[a + 1], b);
+        return i < 0 ? 0 : interWeights[i];
+    }
+
+    /**
+     * @return the inverse of the inter-community weight, infinite for
+     * communities with no edge between them
+     */
+    double distance(int a, int b) {
+        return 1 / interWeight(a, b);
+    }
+
+    /**
+     * Sum of p log p over the other communities of v, p being the weight
+     * to the community over that weight plus the local one.
+     */
+    double entropy(int v) {
+        double entropy = 0;
+        for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+            double p = weights[i] / (weights[i] + localWeights[v]);
+            entropy += p * Math.log(p);
+        }
+        return entropy;
+    }
+
+    /**
+     * Rao-Stirling diversity of v, the sum over ordered pairs of distinct
+     * communities J, K of p_J p_K d(J, K), with p_J the share of v's edge
+     * weight going to J, its own community included. Communities with no
+     * edge between them are {@link #maxDistance} apart.
+     * <p>
+     * Writing the sum as maxDistance times the sum over all pairs, plus
+     * p_J p_K (d(J, K) - maxDistance) over the connected pairs only, only
+     * the pairs found in the community rows cost anything: a hub touching k
+     * communities costs k times the shorter of k and the community row,
+     * each a binary search, not k squared distance lookups.
+     *
+     * @param topK keep only the k heaviest communities of v, 0 for all
+     */
+    double stirling(int v, int topK) {
+        int cv = community[v];
+        double total = localWeights[v];
+        for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+            total += weights[i];
+        }
+        if (cv < 0 || total <= 0) {
+            return 0;
+        }
+
+        //communities of v with their weight, ascending ids
+        int size = 0;
+        boolean own = localWeights[v] > 0;
+        for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+            if (own && cv < ids[i]) {
+                keptIds[size] = cv;
+                keptP[size++] = localWeights[v];
+                own = false;
+            }
+            keptIds[size] = ids[i];
+            keptP[size++] = weights[i];
+        }
+        if (own) {
+            keptIds[size] = cv;
+            keptP[size++] = localWeights[v];
+        }
+        if (topK > 0 && size > topK) {
+            size = keepHeaviest(size, topK);
+        }
+
+        double sumP = 0;
+        double sumP2 = 0;
+        for (int i = 0; i < size; i++) {
+            keptP[i] /= total;
+            sumP += keptP[i];
+            sumP2 += keptP[i] * keptP[i];
+        }
+        double stirling = maxDistance * (sumP * sumP - sumP2);
+
+        for (int j = 0; j < size; j++) {
+            int cj = keptIds[j];
+            int from = interOffsets[cj];
+            int to = interOffsets[cj + 1];
+            double correction = 0;
+            if (to - from > size) {
+                //long community row, look the kept ones up in it
+                for (int k = 0; k < size; k++) {
+                    int i = Arrays.binarySearch(interIds, from, to, keptIds[k]);
+                    if (i >= 0 && interWeights[i] > 0) {
+                        correction += keptP[k] * (1 / interWeights[i] - maxDistance);
+                    }
+                }
+            } else {
+                //short community row, look its entries up in the kept ones
+                for (int i = from; i < to; i++) {
+                    int k = Arrays.binarySearch(keptIds, 0, size, interIds[i]);
+                    if (k >= 0 && interWeights[i] > 0) {
+                        correction += keptP[k] * (1 / interWeights[i] - maxDistance);
+                    }
+                }
+            }
+            stirling += keptP[j] * correction;
+        }
+        return stirling;
+    }
+
+    //keeps the topK heaviest of the first size scratch entries, ids ascending
+    private int keepHeaviest(int size, int topK) {
+        final int[] positions = this.positions;
+        System.arraycopy(boxed, 0, byWeight, 0, size);
+        Arrays.sort(byWeight, 0, size, heavierFirst);
+        //heaviest positions back in ascending order, which is ascending ids
+        for (int i = 0; i < topK; i++) {
+            positions[i] = byWeight[i];
+        }
+        Arrays.sort(positions, 0, topK);
+        for (int i = 0; i < topK; i++) {
+            keptIds[i] = keptIds[positions[i]];
+            keptP[i] = keptP[positions[i]];
+        }
+        return topK;
+    }
+}
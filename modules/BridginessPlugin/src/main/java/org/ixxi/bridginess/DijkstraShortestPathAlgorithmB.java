@@ -45,9 +45,11 @@ package org.ixxi.bridginess;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.IdentityHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.gephi.data.attributes.type.TimeInterval;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
@@ -56,6 +58,16 @@ import org.gephi.graph.api.NodeData;
 import org.openide.util.Lookup;
 
 /**
+ * Single-source Dijkstra on a {@link GraphIndex}: int node indices,
+ * <code>double[]</code> distances and an {@link IndexedHeap}, or a
+ * {@link RadixHeap} when asked for and every weight is a non-negative
+ * integer. The Node-keyed maps of {@link AbstractShortestPathAlgorithmB}
+ * are only filled when one of the Node accessors is called.
+ * <p>
+ * Via-nodes are tracked in the same run: every node carries a bitset of the
+ * via-nodes on its shortest path, copied from the predecessor whenever a
+ * relaxation improves it, and a count of the tied shortest paths avoiding
+ * all of them. Path endpoints count as passed through.
  *
  * @author Mathieu Bastian
  */
@@ -64,6 +76,27 @@ public class DijkstraShortestPathAlgorithmB extends AbstractShortestPathAlgorith
     protected final Graph graph;
     protected final HashMap<NodeData, Edge> predecessors;
     protected TimeInterval timeInterval;
+    
+    private static final Logger LOG = Logger.getLogger(DijkstraShortestPathAlgorithmB.class.getName());
+
+    private GraphIndex index;
+    private int source;
+    private boolean radixHeap;
+    //per node index, filled by compute()
+    private double[] distance;
+    private int[] predecessor;
+    private int[] predecessorSlot;
+    private boolean mapsFilled;
+    //via-nodes, as nodes or as indices
+    private Node[] viaNodes;
+    private int[] via;
+    //via bitset of node v in viaBits[v * words..(v + 1) * words)
+    private int words;
+    private long[] viaBits;
+    private int[] nextBit;
+    //shortest path counts, all of them and those avoiding every via-node
+    private double[] sigma;
+    private double[] sigmaAvoiding;
         
     //extended to account for a node which can or cannot be on the path
     public DijkstraShortestPathAlgorithmB(Graph graph, Node sourceNode, Node beThereNode) {
@@ -76,77 +109,267 @@ public class DijkstraShortestPathAlgorithmB extends AbstractShortestPathAlgorith
         //    timeInterval = DynamicUtilities.getVisibleInterval(dynamicController.getModel(graph.getGraphModel().getWorkspace()));
         //}
     }
+
+    /**
+     * Runs on an existing snapshot, no graph lock is taken. Build the index
+     * once to answer many queries.
+     */
+    public DijkstraShortestPathAlgorithmB(GraphIndex index, int source, Node beThereNode) {
+        super(index.getNode(source), beThereNode);
+        this.graph = null;
+        this.index = index;
+        this.source = source;
+        predecessors = new HashMap<NodeData, Edge>();
+    }
+
+    /**
+     * Uses a radix heap instead of the binary heap when every edge weight is
+     * a non-negative integer, ignored otherwise.
+     */
+    public void setRadixHeap(boolean radixHeap) {
+        this.radixHeap = radixHeap;
+    }
+
+    public boolean isRadixHeap() {
+        return radixHeap;
+    }
+
+    /**
+     * Via-nodes tracked by the next {@link #compute()}, bit i standing for
+     * <code>viaNodes[i]</code>. Defaults to the beThere node.
+     */
+    public void setViaNodes(Node... viaNodes) {
+        this.viaNodes = viaNodes.clone();
+        this.via = null;
+    }
+
+    /**
+     * Same as {@link #setViaNodes(Node...)} with node indices of the
+     * {@link GraphIndex}.
+     */
+    public void setViaIndices(int... via) {
+        this.via = via.clone();
+        this.viaNodes = null;
+    }
+
+    //via-node indices for this run
+    private int[] resolveVia() {
+        if (via != null) {
+            return via;
+        }
+        Node[] wanted = viaNodes;
+        if (wanted == null) {
+            wanted = beThereNode == null ? new Node[0] : new Node[]{beThereNode};
+        }
+        IdentityHashMap<Node, Integer> bit = new IdentityHashMap<Node, Integer>();
+        for (int i = 0; i < wanted.length; i++) {
+            bit.put(wanted[i], i);
+        }
+        int[] resolved = new int[wanted.length];
+        Arrays.fill(resolved, -1);
+        for (int v = 0; v < index.getNodeCount() && !bit.isEmpty(); v++) {
+            Integer i = bit.remove(index.getNode(v));
+            if (i != null) {
+                resolved[i] = v;
+            }
+        }
+        return resolved;
+    }
     
     @Override
     public void compute() {
+        if (graph != null) {
+            graph.readLock();
+            try {
+                index = GraphIndex.build(graph);
+            } finally {
+                graph.readUnlock();
+            }
+            source = index.indexOf(sourceNode);
+        }
         
-        graph.readLock();
-        Set<Node> unsettledNodes = new HashSet<Node>();
-        Set<NodeData> settledNodes = new HashSet<NodeData>();
+        final int n = index.getNodeCount();
+        final int[] offsets = index.offsets;
+        final int[] targets = index.targets;
+        final double[] weights = edgeWeights();
+        distance = new double[n];
+        predecessor = new int[n];
+        predecessorSlot = new int[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+        Arrays.fill(predecessorSlot, -1);
+        boolean[] settled = new boolean[n];
+        NodeQueue queue = radixHeap && RadixHeap.accepts(weights) ? new RadixHeap(n) : new IndexedHeap(n);
+        mapsFilled = false;
+        maxDistance = 0;
 
-        Node isThereNode;
-        //Initialize
-        for (Node node : graph.getNodes()) {
-            distances.put(node.getNodeData(), Double.POSITIVE_INFINITY);
-            beTheres.put(node.getNodeData(), FALSE);
+        //first bit of each via-node, -1 elsewhere, nextBit chains the bits
+        //of a node listed more than once
+        int[] viaOf = null;
+        int[] resolved = resolveVia();
+        nextBit = new int[resolved.length];
+        words = (resolved.length + 63) >>> 6;
+        if ((long) n * words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(resolved.length + " via-nodes on " + n
+                    + " nodes do not fit one bitset array");
         }
-        
-        
-                
-        distances.put(sourceNode.getNodeData(), 0d);
-        
-        unsettledNodes.add(sourceNode);
-        
-        while (!unsettledNodes.isEmpty()) {
-
-            // find node with smallest distance value
-            Double minDistance = Double.POSITIVE_INFINITY;
-            Node minDistanceNode = null;
-            for (Node k : unsettledNodes) {
-                Double dist = distances.get(k.getNodeData());
-                if (minDistanceNode == null) {
-                    minDistanceNode = k;
-                }
-                
-                if (dist.compareTo(minDistance) < 0) {
-                    minDistance = dist;
-                    minDistanceNode = k;
-                    System.out.println("compare bethere and k "+ beThereNode.getId() + " vs " + k.getId() + " dist " + dist);
-                    if (k == beThereNode) {
-                        System.out.println("k is there: " + k.getId());
-                        beTheres.put(k.getNodeData(), TRUE);
-                        }   
+        viaBits = new long[n * words];
+        sigma = new double[n];
+        sigmaAvoiding = new double[n];
+        if (resolved.length > 0) {
+            viaOf = new int[n];
+            Arrays.fill(viaOf, -1);
+            for (int i = resolved.length - 1; i >= 0; i--) {
+                if (resolved[i] >= 0) {
+                    nextBit[i] = viaOf[resolved[i]];
+                    viaOf[resolved[i]] = i;
                 }
             }
-            unsettledNodes.remove(minDistanceNode);
-            settledNodes.add(minDistanceNode.getNodeData());
-            
-            for (Edge edge : graph.getEdges(minDistanceNode)) {
-                Node neighbor = graph.getOpposite(minDistanceNode, edge);
-                if (!settledNodes.contains(neighbor.getNodeData())) {
-                    double dist = getShortestDistance(minDistanceNode) + edgeWeight(edge);
-                    if (getShortestDistance(neighbor) > dist) {
-                        //beTheres.put(neighbor.getNodeData(), TRUE); //WHERE, THEN????
-                        distances.put(neighbor.getNodeData(), dist);
-                        predecessors.put(neighbor.getNodeData(), edge);
-                        unsettledNodes.add(neighbor);
-                        maxDistance = Math.max(maxDistance, dist);
+        }
+        
+        distance[source] = 0;
+        sigma[source] = 1;
+        sigmaAvoiding[source] = viaOf != null && viaOf[source] >= 0 ? 0 : 1;
+        setOwnBit(viaOf, source);
+        queue.push(source, 0);
+        //checked once, the relaxation loop only tests the flag
+        final boolean trace = LOG.isLoggable(Level.FINEST);
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            settled[v] = true;
+            double dv = distance[v];
+            maxDistance = Math.max(maxDistance, dv);
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                if (settled[w]) {
+                    continue;
+                }
+                double dist = dv + weights[e];
+                boolean isVia = viaOf != null && viaOf[w] >= 0;
+                if (WeightedBridginessKernel.tie(dist, distance[w])) {
+                    sigma[w] += sigma[v];
+                    sigmaAvoiding[w] += isVia ? 0 : sigmaAvoiding[v];
+                } else if (dist < distance[w]) {
+                    distance[w] = dist;
+                    predecessor[w] = v;
+                    predecessorSlot[w] = e;
+                    sigma[w] = sigma[v];
+                    sigmaAvoiding[w] = isVia ? 0 : sigmaAvoiding[v];
+                    //the via-nodes of w are those of its new predecessor, plus itself
+                    System.arraycopy(viaBits, v * words, viaBits, w * words, words);
+                    setOwnBit(viaOf, w);
+                    queue.push(w, dist);
+                    if (trace) {
+                        LOG.log(Level.FINEST, "distance of {0} down to {1} via {2}", new Object[]{w, dist, v});
                     }
                 }
             }
         }
-        
-        graph.readUnlock();
     }
-    
-    private double getShortestDistance(Node destination) {
-        Double d = distances.get(destination.getNodeData());
-        if (d == null) {
-            return Double.POSITIVE_INFINITY;
-        } else {
-            return d;
+
+    private void setOwnBit(int[] viaOf, int v) {
+        if (viaOf == null) {
+            return;
+        }
+        for (int i = viaOf[v]; i >= 0; i = nextBit[i]) {
+            viaBits[v * words + (i >>> 6)] |= 1L << i;
         }
     }
+
+    /**
+     * @return true if the shortest path to node <code>v</code>, as given by
+     * the predecessors, passes through via-node <code>i</code>
+     * @throws IllegalArgumentException if <code>i</code> is not the bit of
+     * one of the via-nodes of the last {@link #compute()}
+     */
+    public boolean passesThrough(int v, int i) {
+        if (i < 0 || i >= nextBit.length) {
+            throw new IllegalArgumentException("No via-node " + i + ", " + nextBit.length + " tracked");
+        }
+        return (viaBits[v * words + (i >>> 6)] & (1L << i)) != 0;
+    }
+
+    /**
+     * @return true if the shortest path to node <code>v</code> passes
+     * through at least one via-node
+     */
+    public boolean passesThroughAny(int v) {
+        for (int k = v * words; k < (v + 1) * words; k++) {
+            if (viaBits[k] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of shortest paths from the source to node
+     * <code>v</code>, ties included
+     */
+    public double getPathCount(int v) {
+        return sigma[v];
+    }
+
+    /**
+     * @return how many of the shortest paths to node <code>v</code> cross at
+     * least one via-node
+     */
+    public double getPathCountThroughVia(int v) {
+        return sigma[v] - sigmaAvoiding[v];
+    }
+
+    //goes through edgeWeight(Edge) when the index keeps its edges
+    private double[] edgeWeights() {
+        double[] weights = new double[index.getEdgeCount()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = index.edges != null ? edgeWeight(index.edges[e]) : index.weights[e];
+        }
+        return weights;
+    }
+
+    /**
+     * @return the distance from the source to node <code>v</code> of the
+     * index, infinite if unreachable
+     */
+    public double getDistance(int v) {
+        return distance[v];
+    }
+
+    /**
+     * @return the node index preceding <code>v</code> on its shortest path,
+     * -1 for the source and unreachable nodes
+     */
+    public int getPredecessor(int v) {
+        return predecessor[v];
+    }
+
+    public GraphIndex getIndex() {
+        return index;
+    }
+
+    //Node-keyed view, built on first use
+    private void fillMaps() {
+        if (mapsFilled) {
+            return;
+        }
+        for (int v = 0; v < distance.length; v++) {
+            NodeData data = index.getNode(v).getNodeData();
+            distances.put(data, distance[v]);
+            beTheres.put(data, FALSE);
+            if (predecessorSlot[v] >= 0 && index.edges != null) {
+                predecessors.put(data, index.edges[predecessorSlot[v]]);
+            }
+        }
+        //with the default via-node, the beThere node is bit 0
+        if (beThereNode != null && viaNodes == null && via == null) {
+            for (int v = 0; v < distance.length; v++) {
+                if (passesThrough(v, 0)) {
+                    beTheres.put(index.getNode(v).getNodeData(), TRUE);
+                }
+            }
+        }
+        mapsFilled = true;
+    }
     
     @Override
     protected double edgeWeight(Edge edge) {
@@ -158,6 +381,11 @@ public class DijkstraShortestPathAlgorithmB extends AbstractShortestPathAlgorith
     
     @Override
     public Node getPredecessor(Node node) {
+        if (index.edges == null) {
+            int v = index.indexOf(node);
+            return v < 0 || predecessor[v] < 0 ? null : index.getNode(predecessor[v]);
+        }
+        fillMaps();
         Edge edge = predecessors.get(node.getNodeData());
         if (edge != null) {
             if (edge.getSource() != node) {
@@ -171,6 +399,19 @@ public class DijkstraShortestPathAlgorithmB extends AbstractShortestPathAlgorith
     
     @Override
     public Edge getPredecessorIncoming(Node node) {
+        fillMaps();
         return predecessors.get(node.getNodeData());
     }
+
+    @Override
+    public HashMap<NodeData, Double> getDistances() {
+        fillMaps();
+        return distances;
+    }
+
+    @Override
+    public HashMap<NodeData, Boolean> getIsTheres() {
+        fillMaps();
+        return beTheres;
+    }
 }
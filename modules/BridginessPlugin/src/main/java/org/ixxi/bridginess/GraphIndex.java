@@ -0,0 +1,194 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.HierarchicalDirectedGraph;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+
+/**
+ * Compressed sparse row snapshot of a graph: the neighbours of node
+ * <code>i</code> are <code>targets[offsets[i]..offsets[i + 1]-1]</code>,
+ * with the matching edge weights in <code>weights</code>.
+ * Built once under the graph read lock, then read without it.
+ *
+ * @author MM@IXXI
+ */
+public final class GraphIndex {
+
+    final Node[] nodes;
+    final int[] offsets;
+    final int[] targets;
+    final float[] weights;
+    //edge of every slot, only kept by build(Graph)
+    final Edge[] edges;
+
+    private GraphIndex(Node[] nodes, int[] offsets, int[] targets, float[] weights, Edge[] edges) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edges = edges;
+    }
+
+    /**
+     * Snapshots <code>hgraph</code>, the caller must hold its read lock.
+     * Directed graphs keep out-edges only, undirected graphs list every
+     * edge from both endpoints.
+     */
+    public static GraphIndex build(HierarchicalGraph hgraph, boolean directed) {
+        int n = hgraph.getNodeCount();
+        Node[] nodes = new Node[n];
+        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>(2 * n);
+        int index = 0;
+        for (Node s : hgraph.getNodes()) {
+            nodes[index] = s;
+            indicies.put(s, index);
+            index++;
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[Math.max(16, 2 * hgraph.getEdgeCount())];
+        float[] weights = new float[targets.length];
+        int slot = 0;
+        for (int v = 0; v < n; v++) {
+            offsets[v] = slot;
+            EdgeIterable edgeIter = null;
+            if (directed) {
+                edgeIter = ((HierarchicalDirectedGraph) hgraph).getOutEdgesAndMetaOutEdges(nodes[v]);
+            } else {
+                edgeIter = hgraph.getEdgesAndMetaEdges(nodes[v]);
+            }
+            for (Edge edge : edgeIter) {
+                Integer r = indicies.get(hgraph.getOpposite(nodes[v], edge));
+                if (r == null) {
+                    continue;
+                }
+                if (slot == targets.length) {
+                    targets = Arrays.copyOf(targets, 2 * slot);
+                    weights = Arrays.copyOf(weights, 2 * slot);
+                }
+                targets[slot] = r;
+                weights[slot] = edge.getWeight();
+                slot++;
+            }
+        }
+        offsets[n] = slot;
+
+        return new GraphIndex(nodes, offsets,
+                Arrays.copyOf(targets, slot), Arrays.copyOf(weights, slot), null);
+    }
+
+    /**
+     * Snapshots <code>graph</code> as {@link Graph#getEdges(Node)} lists it,
+     * keeping the edge of every slot. The caller must hold its read lock.
+     */
+    public static GraphIndex build(Graph graph) {
+        int n = graph.getNodeCount();
+        Node[] nodes = new Node[n];
+        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>(2 * n);
+        int index = 0;
+        for (Node s : graph.getNodes()) {
+            nodes[index] = s;
+            indicies.put(s, index);
+            index++;
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[Math.max(16, 2 * graph.getEdgeCount())];
+        float[] weights = new float[targets.length];
+        Edge[] edges = new Edge[targets.length];
+        int slot = 0;
+        for (int v = 0; v < n; v++) {
+            offsets[v] = slot;
+            for (Edge edge : graph.getEdges(nodes[v])) {
+                Integer r = indicies.get(graph.getOpposite(nodes[v], edge));
+                if (r == null) {
+                    continue;
+                }
+                if (slot == targets.length) {
+                    targets = Arrays.copyOf(targets, 2 * slot);
+                    weights = Arrays.copyOf(weights, 2 * slot);
+                    edges = Arrays.copyOf(edges, 2 * slot);
+                }
+                targets[slot] = r;
+                weights[slot] = edge.getWeight();
+                edges[slot] = edge;
+                slot++;
+            }
+        }
+        offsets[n] = slot;
+
+        return new GraphIndex(nodes, offsets, Arrays.copyOf(targets, slot),
+                Arrays.copyOf(weights, slot), Arrays.copyOf(edges, slot));
+    }
+
+    /**
+     * Index over an adjacency already in CSR form, with no graph behind it:
+     * {@link #getNode(int)} returns <code>null</code>. For headless runs on
+     * generated graphs.
+     */
+    static GraphIndex of(int[] offsets, int[] targets, float[] weights) {
+        return new GraphIndex(new Node[offsets.length - 1], offsets, targets, weights, null);
+    }
+
+    /**
+     * @param from node of this index to put at each position, a permutation
+     * @return this index with its nodes reordered
+     */
+    GraphIndex reorder(int[] from) {
+        int n = nodes.length;
+        int[] to = new int[n];
+        for (int p = 0; p < n; p++) {
+            to[from[p]] = p;
+        }
+        Node[] reordered = new Node[n];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[this.targets.length];
+        float[] weights = new float[this.weights.length];
+        Edge[] edges = this.edges == null ? null : new Edge[this.edges.length];
+        int slot = 0;
+        for (int p = 0; p < n; p++) {
+            int v = from[p];
+            reordered[p] = nodes[v];
+            offsets[p] = slot;
+            for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+                targets[slot] = to[this.targets[e]];
+                weights[slot] = this.weights[e];
+                if (edges != null) {
+                    edges[slot] = this.edges[e];
+                }
+                slot++;
+            }
+        }
+        offsets[n] = slot;
+        return new GraphIndex(reordered, offsets, targets, weights, edges);
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public Node getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * @return the index of <code>node</code>, -1 if absent (linear scan)
+     */
+    public int indexOf(Node node) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,256 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import org.gephi.graph.api.Node;
+
+/**
+ * Unweighted exact sums of a previous run with the snapshot they were
+ * computed on, brought up to date after edge insertions and deletions by
+ * re-running only the sources whose shortest-path DAG the edits touch.
+ * <p>
+ * Source s is affected by an inserted or deleted arc u -&gt; t iff, before
+ * the edit, u is reachable from s and d(s, u) &lt; d(s, t): the new arc
+ * gives t a shortest path at least as short, or the old one was a DAG arc.
+ * Both distances to every source come from one BFS from u and one from t
+ * on the reversed old graph, so nothing per source has to be kept. A batch
+ * of edits affects the union of the sources each edit affects alone.
+ * <p>
+ * An affected source is run on the old snapshot with scale -1, which takes
+ * its old dependencies out of the sums, then on the new one with scale 1.
+ *
+ * @author MM@IXXI
+ */
+final class IncrementalBrandes {
+
+    private GraphIndex index;
+    private final int[] minPathLengths;
+    private final int[] exclRadii;
+    private final boolean directed;
+    //unscaled, over all sources
+    private final Accumulators sums;
+
+    IncrementalBrandes(GraphIndex index, int[] minPathLengths, int[] exclRadii, boolean directed,
+            Accumulators sums) {
+        this.index = index;
+        this.minPathLengths = minPathLengths.clone();
+        this.exclRadii = exclRadii.clone();
+        this.directed = directed;
+        this.sums = sums.copy();
+    }
+
+    /**
+     * @return the snapshot the sums are up to date with
+     */
+    GraphIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return true if the sums are those of a run with these settings
+     */
+    boolean accepts(int[] minPathLengths, int[] exclRadii, boolean directed) {
+        return this.directed == directed && Arrays.equals(this.minPathLengths, minPathLengths)
+                && Arrays.equals(this.exclRadii, exclRadii);
+    }
+
+    /**
+     * @return <code>next</code> with its nodes in the order of the kept
+     * snapshot, <code>null</code> if the node sets differ
+     */
+    GraphIndex align(GraphIndex next) {
+        int n = index.getNodeCount();
+        if (next.getNodeCount() != n) {
+            return null;
+        }
+        boolean same = true;
+        for (int p = 0; p < n && same; p++) {
+            same = index.nodes[p] == next.nodes[p];
+        }
+        if (same) {
+            return next;
+        }
+        HashMap<Node, Integer> position = new HashMap<Node, Integer>(2 * n);
+        for (int q = 0; q < n; q++) {
+            position.put(next.nodes[q], q);
+        }
+        int[] from = new int[n];
+        for (int p = 0; p < n; p++) {
+            Integer q = position.get(index.nodes[p]);
+            if (q == null) {
+                return null;
+            }
+            from[p] = q;
+        }
+        return next.reorder(from);
+    }
+
+    /**
+     * @param next the edited graph, aligned with {@link #align}
+     * @return the sources to re-run, ascending, <code>null</code> when
+     * re-running them twice would cost more than a full pass
+     */
+    int[] affectedSources(GraphIndex next) {
+        int n = index.getNodeCount();
+        int[] changed = changedArcs(next);
+        int arcs = changed.length / 2;
+        //two BFS per arc, two runs per affected source, against n runs
+        if (2L * arcs >= n) {
+            return null;
+        }
+
+        //d(s, x) for every s is a BFS from x over the reversed arcs
+        int[] rOffsets = index.offsets;
+        int[] rTargets = index.targets;
+        if (directed) {
+            rOffsets = new int[n + 1];
+            rTargets = new int[index.targets.length];
+            for (int t : index.targets) {
+                rOffsets[t + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                rOffsets[v + 1] += rOffsets[v];
+            }
+            int[] fill = Arrays.copyOf(rOffsets, n);
+            for (int v = 0; v < n; v++) {
+                for (int e = index.offsets[v]; e < index.offsets[v + 1]; e++) {
+                    rTargets[fill[index.targets[e]]++] = v;
+                }
+            }
+        }
+
+        boolean[] hit = new boolean[n];
+        int count = 0;
+        int[] du = new int[n];
+        int[] dt = new int[n];
+        int[] queue = new int[n];
+        int lastU = -1;
+        for (int i = 0; i < arcs; i++) {
+            int u = changed[2 * i];
+            int t = changed[2 * i + 1];
+            //arcs come grouped by tail
+            if (u != lastU) {
+                bfs(rOffsets, rTargets, u, du, queue);
+                lastU = u;
+            }
+            bfs(rOffsets, rTargets, t, dt, queue);
+            for (int s = 0; s < n; s++) {
+                if (hit[s]) {
+                    continue;
+                }
+                //undirected edges are listed once, either end may come first
+                boolean affected = directed
+                        ? du[s] >= 0 && (dt[s] < 0 || du[s] < dt[s])
+                        : du[s] != dt[s];
+                if (affected) {
+                    hit[s] = true;
+                    count++;
+                }
+            }
+            if (2L * (arcs + count) >= n) {
+                return null;
+            }
+        }
+
+        int[] affected = new int[count];
+        int k = 0;
+        for (int s = 0; s < n; s++) {
+            if (hit[s]) {
+                affected[k++] = s;
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Arcs whose multiplicity differs between the kept snapshot and
+     * <code>next</code>, as tail, head pairs grouped by tail. Self-loops
+     * are left out, and undirected edges are listed once from their lower
+     * end.
+     */
+    private int[] changedArcs(GraphIndex next) {
+        int n = index.getNodeCount();
+        int[] changed = new int[16];
+        int size = 0;
+        int[] before = new int[16];
+        int[] after = new int[16];
+        for (int v = 0; v < n; v++) {
+            int a = index.offsets[v + 1] - index.offsets[v];
+            int b = next.offsets[v + 1] - next.offsets[v];
+            if (a > before.length) {
+                before = new int[Math.max(a, 2 * before.length)];
+            }
+            if (b > after.length) {
+                after = new int[Math.max(b, 2 * after.length)];
+            }
+            System.arraycopy(index.targets, index.offsets[v], before, 0, a);
+            System.arraycopy(next.targets, next.offsets[v], after, 0, b);
+            Arrays.sort(before, 0, a);
+            Arrays.sort(after, 0, b);
+            //merge walk, an unmatched target is an inserted or deleted arc
+            int i = 0;
+            int j = 0;
+            while (i < a || j < b) {
+                int t;
+                if (j == b || (i < a && before[i] < after[j])) {
+                    t = before[i++];
+                } else if (i == a || after[j] < before[i]) {
+                    t = after[j++];
+                } else {
+                    i++;
+                    j++;
+                    continue;
+                }
+                if (t == v || (!directed && t < v)) {
+                    continue;
+                }
+                if (size + 2 > changed.length) {
+                    changed = Arrays.copyOf(changed, 2 * changed.length);
+                }
+                changed[size++] = v;
+                changed[size++] = t;
+            }
+        }
+        return Arrays.copyOf(changed, size);
+    }
+
+    //hop distances from root, -1 when unreachable
+    private static void bfs(int[] offsets, int[] targets, int root, int[] dist, int[] queue) {
+        Arrays.fill(dist, -1);
+        dist[root] = 0;
+        queue[0] = root;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                if (dist[w] < 0) {
+                    dist[w] = dist[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+    }
+
+    /**
+     * Folds the re-run sources into the sums and moves on to
+     * <code>next</code>.
+     *
+     * @param removed the affected sources run on the kept snapshot with
+     * scale -1
+     * @param added the same sources run on <code>next</code>
+     * @return a copy of the updated sums
+     */
+    Accumulators commit(GraphIndex next, Accumulators removed, Accumulators added) {
+        long shortestPaths = sums.shortestPaths - removed.shortestPaths + added.shortestPaths;
+        long edgesRelaxed = removed.edgesRelaxed + added.edgesRelaxed;
+        removed.foldInto(sums);
+        added.foldInto(sums);
+        sums.shortestPaths = shortestPaths;
+        //work of this refresh only
+        sums.edgesRelaxed = edgesRelaxed;
+        index = next;
+        return sums.copy();
+    }
+}
@@ -0,0 +1,109 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over node indices 0..n-1 with a position table, so that
+ * decrease-key is O(log n) and nothing is boxed.
+ *
+ * @author MM@IXXI
+ */
+final class IndexedHeap implements NodeQueue {
+
+    private final int[] heap;
+    //slot of each node in heap, -1 when not queued
+    private final int[] position;
+    private final double[] keys;
+    private int size;
+
+    IndexedHeap(int n) {
+        heap = new int[n];
+        position = new int[n];
+        keys = new double[n];
+        Arrays.fill(position, -1);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int v) {
+        return position[v] >= 0;
+    }
+
+    @Override
+    public void push(int v, double key) {
+        int i = position[v];
+        if (i < 0) {
+            i = size++;
+        } else if (key >= keys[v]) {
+            return;
+        }
+        keys[v] = key;
+        up(v, i);
+    }
+
+    @Override
+    public int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            down(last, 0);
+        }
+        return top;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    //moves v up from slot i
+    private void up(int v, int i) {
+        double key = keys[v];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) {
+                break;
+            }
+            heap[i] = p;
+            position[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+
+    //moves v down from slot i
+    private void down(int v, int i) {
+        double key = keys[v];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[c]) {
+                child = right;
+                c = heap[child];
+            }
+            if (key <= keys[c]) {
+                break;
+            }
+            heap[i] = c;
+            position[c] = i;
+            i = child;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+}
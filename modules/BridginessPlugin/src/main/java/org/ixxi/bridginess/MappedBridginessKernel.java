@@ -0,0 +1,73 @@
+package org.ixxi.bridginess;
+
+import java.nio.IntBuffer;
+
+/**
+ * {@link BridginessKernel} reading the adjacency of a {@link MappedGraph}
+ * instead of the arrays of a {@link GraphIndex}. Only the adjacency is off
+ * heap, the traversal arrays are the usual per-thread ones.
+ *
+ * @author MM@IXXI
+ */
+final class MappedBridginessKernel extends BridginessKernel {
+
+    //own views, buffer positions are not thread safe
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+
+    MappedBridginessKernel(MappedGraph graph, int[] minPathLengths, int[] exclRadii) {
+        super(null, graph.getNodeCount(), minPathLengths, exclRadii);
+        this.offsets = graph.offsets.duplicate();
+        this.targets = graph.targets.duplicate();
+    }
+
+    @Override
+    int traverse(int s) {
+        final IntBuffer offsets = this.offsets;
+        final IntBuffer targets = this.targets;
+        final int[] order = this.order;
+        final int[] d = this.d;
+        final double[] theta = this.theta;
+        theta[s] = 1;
+        d[s] = 0;
+        order[0] = s;
+        int head = 0;
+        int tail = 1;
+        long relaxed = 0;
+        while (head < tail) {
+            int v = order[head++];
+            int dv = d[v] + 1;
+            int end = offsets.get(v + 1);
+            int e = offsets.get(v);
+            relaxed += end - e;
+            for (; e < end; e++) {
+                int r = targets.get(e);
+                if (d[r] < 0) {
+                    order[tail++] = r;
+                    d[r] = dv;
+                }
+                if (d[r] == dv) {
+                    theta[r] += theta[v];
+                }
+            }
+        }
+        sums.edgesRelaxed += relaxed;
+        return tail;
+    }
+
+    @Override
+    double pull(int v, int lv, int bv) {
+        final IntBuffer targets = this.targets;
+        final int[] d = this.d;
+        int dw = d[v] + 1;
+        double deltaV = 0;
+        int end = offsets.get(v + 1);
+        for (int e = offsets.get(v); e < end; e++) {
+            int w = targets.get(e);
+            if (d[w] == dw) {
+                deltaV += successor(v, w, lv, bv);
+            }
+        }
+        return deltaV;
+    }
+}
@@ -0,0 +1,357 @@
+package org.ixxi.bridginess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.gephi.graph.api.Node;
+
+/**
+ * Compressed sparse row adjacency in a memory-mapped file, for graphs whose
+ * adjacency does not fit the heap: the operating system pages it in and
+ * out, only the node ids stay on the heap. Hop counts only, no weights.
+ * <p>
+ * The file holds a header, the n + 1 offsets and the arc targets, as ints
+ * in the byte order of the machine that wrote it; the node ids are in a
+ * text file next to it, one per line, with the suffix <code>.ids</code>.
+ * Arcs are kept as listed, parallel ones and self-loops included, and
+ * undirected edges are listed from both ends, like a {@link GraphIndex}, so
+ * shortest-path counts are those of a run on the heap. The header also
+ * records the size and time of the file the graph was read from, to tell
+ * whether a mapped copy is still that of its source.
+ *
+ * @author MM@IXXI
+ */
+public final class MappedGraph {
+
+    private static final int MAGIC = 0x42435352; //"BCSR"
+    private static final int VERSION = 2;
+    private static final int HEADER = 48;
+    //one mapping per array, so arcs are bounded by the 2 GB of a mapping
+    private static final long MAX_ARCS = Integer.MAX_VALUE / 4;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final boolean directed;
+    private final int nodes;
+    private final int arcs;
+    //of the file the graph was read from, 0 if unknown
+    private final long sourceLength;
+    private final long sourceModified;
+    final IntBuffer offsets;
+    final IntBuffer targets;
+    private final String[] ids;
+
+    private MappedGraph(boolean directed, int nodes, int arcs, long sourceLength, long sourceModified,
+            IntBuffer offsets, IntBuffer targets, String[] ids) {
+        this.directed = directed;
+        this.nodes = nodes;
+        this.arcs = arcs;
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.ids = ids;
+    }
+
+    /**
+     * Builds <code>file</code> from an edge list, "source target [weight]"
+     * lines separated by blanks, tabs or commas, weights ignored. The list
+     * is read twice, the first time to number the nodes and count degrees,
+     * the second to put every arc straight into its mapped row. A self-loop
+     * is one arc, even undirected.
+     */
+    public static MappedGraph build(File edgeList, File file, boolean directed) throws IOException {
+        long sourceLength = edgeList.length();
+        long sourceModified = edgeList.lastModified();
+        HashMap<String, Integer> numbers = new HashMap<String, Integer>();
+        List<String> ids = new ArrayList<String>();
+        int[] degree = new int[1024];
+        long arcs = 0;
+        EdgeReader reader = new EdgeReader(edgeList);
+        try {
+            while (reader.next()) {
+                int u = number(reader.source, numbers, ids);
+                int t = number(reader.target, numbers, ids);
+                if (ids.size() > degree.length) {
+                    degree = Arrays.copyOf(degree, 2 * ids.size());
+                }
+                degree[u]++;
+                arcs++;
+                if (!directed && t != u) {
+                    degree[t]++;
+                    arcs++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (arcs > MAX_ARCS) {
+            throw new IOException(edgeList + ": " + arcs + " arcs, at most " + MAX_ARCS + " can be mapped");
+        }
+        int n = ids.size();
+        int[] fill = new int[n];
+        for (int v = 1; v < n; v++) {
+            fill[v] = fill[v - 1] + degree[v - 1];
+        }
+        degree = null;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer targetBytes = map(channel, HEADER + 4L * (n + 1), arcs);
+            IntBuffer targets = targetBytes.asIntBuffer();
+            reader = new EdgeReader(edgeList);
+            try {
+                while (reader.next()) {
+                    int u = numbers.get(reader.source);
+                    int t = numbers.get(reader.target);
+                    targets.put(fill[u]++, t);
+                    if (!directed && t != u) {
+                        targets.put(fill[t]++, u);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            numbers = null;
+            write(channel, targetBytes, fill, directed, sourceLength, sourceModified);
+        } finally {
+            raf.close();
+        }
+        writeIds(file, ids);
+        return open(file);
+    }
+
+    /**
+     * Writes <code>index</code> to <code>file</code>, weights ignored.
+     */
+    public static MappedGraph save(GraphIndex index, File file, boolean directed) throws IOException {
+        return save(index, file, directed, null);
+    }
+
+    /**
+     * Same as {@link #save(GraphIndex, File, boolean)}, recording
+     * <code>source</code> as the file <code>index</code> was read from.
+     */
+    public static MappedGraph save(GraphIndex index, File file, boolean directed, File source)
+            throws IOException {
+        long sourceLength = source == null ? 0 : source.length();
+        long sourceModified = source == null ? 0 : source.lastModified();
+        int n = index.getNodeCount();
+        if (index.targets.length > MAX_ARCS) {
+            throw new IOException(index.targets.length + " arcs, at most " + MAX_ARCS + " can be mapped");
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer targetBytes = map(channel, HEADER + 4L * (n + 1), index.targets.length);
+            targetBytes.asIntBuffer().put(index.targets);
+            write(channel, targetBytes, Arrays.copyOfRange(index.offsets, 1, n + 1), directed, sourceLength,
+                    sourceModified);
+        } finally {
+            raf.close();
+        }
+        List<String> ids = new ArrayList<String>(n);
+        for (int v = 0; v < n; v++) {
+            Node node = index.getNode(v);
+            ids.add(node == null ? String.valueOf(v) : String.valueOf(node.getNodeData().getId()));
+        }
+        writeIds(file, ids);
+        return open(file);
+    }
+
+    /**
+     * Writes the offsets of the rows, row v ending at ends[v], and the
+     * header, then forces the targets, the offsets and the header to disk.
+     */
+    private static void write(FileChannel channel, MappedByteBuffer targetBytes, int[] ends, boolean directed,
+            long sourceLength, long sourceModified) throws IOException {
+        int n = ends.length;
+        MappedByteBuffer offsetBytes = map(channel, HEADER, n + 1);
+        IntBuffer offsets = offsetBytes.asIntBuffer();
+        offsets.put(0, 0);
+        for (int v = 0; v < n; v++) {
+            offsets.put(v + 1, ends[v]);
+        }
+        offsetBytes.force();
+        targetBytes.force();
+        int arcs = n == 0 ? 0 : ends[n - 1];
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION)
+                .put((byte) (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? 1 : 0))
+                .put((byte) (directed ? 1 : 0))
+                .putInt(n).putInt(arcs)
+                .putLong(sourceLength).putLong(sourceModified);
+        header.clear();
+        channel.write(header, 0);
+        channel.force(true);
+    }
+
+    /**
+     * Maps a file written by {@link #build} or {@link #save}, read only.
+     */
+    public static MappedGraph open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not a mapped bridginess graph");
+            }
+            ByteOrder order = header.get() == 1 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            boolean directed = header.get() == 1;
+            int n = header.getInt();
+            int arcs = header.getInt();
+            long sourceLength = header.getLong();
+            long sourceModified = header.getLong();
+            IntBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, 4L * (n + 1))
+                    .order(order).asIntBuffer();
+            IntBuffer targets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + 4L * (n + 1), 4L * arcs)
+                    .order(order).asIntBuffer();
+            return new MappedGraph(directed, n, arcs, sourceLength, sourceModified, offsets, targets,
+                    readIds(file, n));
+        } finally {
+            //the mappings stay valid once the file is closed
+            raf.close();
+        }
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    public int getEdgeCount() {
+        return arcs;
+    }
+
+    /**
+     * @return true if this graph was built or saved from
+     * <code>source</code> as it is now, same size and modification time
+     */
+    public boolean isCopyOf(File source) {
+        return sourceLength > 0 && source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    /**
+     * @return the id of node <code>v</code> in the edge list or graph it was
+     * built from
+     */
+    public String getId(int v) {
+        return ids[v];
+    }
+
+    private static int number(String id, HashMap<String, Integer> numbers, List<String> ids) {
+        Integer number = numbers.get(id);
+        if (number == null) {
+            number = ids.size();
+            numbers.put(id, number);
+            ids.add(id);
+        }
+        return number;
+    }
+
+    //read-write, grows the file as needed
+    private static MappedByteBuffer map(FileChannel channel, long position, long ints) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_WRITE, position, 4 * ints);
+        bytes.order(ByteOrder.nativeOrder());
+        return bytes;
+    }
+
+    private static File idsFile(File file) {
+        return new File(file.getPath() + ".ids");
+    }
+
+    private static void writeIds(File file, List<String> ids) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(idsFile(file)), UTF8));
+        try {
+            for (String id : ids) {
+                out.write(id);
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String[] readIds(File file, int n) throws IOException {
+        String[] ids = new String[n];
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(idsFile(file)), UTF8));
+        try {
+            for (int v = 0; v < n; v++) {
+                ids[v] = in.readLine();
+                if (ids[v] == null) {
+                    throw new IOException(idsFile(file) + ": " + n + " ids expected, " + v + " found");
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Edge list lines, same rules as {@link BridginessRunner#readEdgeList}.
+     */
+    private static final class EdgeReader {
+
+        private final File file;
+        private final BufferedReader in;
+        private int number;
+        String source;
+        String target;
+
+        EdgeReader(File file) throws IOException {
+            this.file = file;
+            this.in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8), 1 << 16);
+        }
+
+        boolean next() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("%")) {
+                    continue;
+                }
+                String[] fields = line.split("[\\s,]+");
+                if (fields.length < 2) {
+                    throw new IOException(file + ":" + number + ": expected source and target");
+                }
+                source = fields[0];
+                target = fields[1];
+                return true;
+            }
+            return false;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
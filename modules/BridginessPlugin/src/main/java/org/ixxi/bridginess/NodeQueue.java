@@ -0,0 +1,27 @@
+package org.ixxi.bridginess;
+
+/**
+ * Min-priority queue of int node indices for Dijkstra, with decrease-key.
+ *
+ * @author MM@IXXI
+ */
+interface NodeQueue {
+
+    boolean isEmpty();
+
+    /**
+     * Inserts <code>v</code>, or lowers its key if it is already queued.
+     * Keys never go up.
+     */
+    void push(int v, double key);
+
+    /**
+     * Removes and returns a node of smallest key.
+     */
+    int poll();
+
+    /**
+     * Empties the queue, in time proportional to what is left in it.
+     */
+    void clear();
+}
@@ -0,0 +1,106 @@
+package org.ixxi.bridginess;
+
+import java.util.HashMap;
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.data.attributes.api.AttributeType;
+
+/**
+ * Dense community ids for any partition column: each distinct value gets
+ * the next id the first time it is met, so sparse integer ids and string
+ * labels both end up in 0..size()-1.
+ * <p>
+ * One mapping lives in the lookup of each workspace, like
+ * {@link ResultCache}, and is reused while the same column is asked for,
+ * which keeps community ids stable from one run to the next. It starts
+ * over when the column changes or when most of its values are gone.
+ *
+ * @author MM@IXXI
+ */
+final class PartitionMapping {
+
+    private final AttributeColumn column;
+    private final HashMap<Object, Integer> ids = new HashMap<Object, Integer>();
+
+    private PartitionMapping(AttributeColumn column) {
+        this.column = column;
+    }
+
+    /**
+     * @return true for the column types that can hold a partition
+     */
+    static boolean accepts(AttributeType type) {
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case STRING:
+            case BIGINTEGER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return <code>previous</code> if it maps <code>column</code>, a new
+     * mapping otherwise
+     */
+    static PartitionMapping forColumn(PartitionMapping previous, AttributeColumn column) {
+        return previous != null && previous.column == column ? previous : new PartitionMapping(column);
+    }
+
+    /**
+     * Reads the column for every node of <code>index</code>, the caller must
+     * hold the graph read lock.
+     *
+     * @return the community of each node, -1 where the value is missing
+     */
+    synchronized int[] assign(GraphIndex index) {
+        int n = index.getNodeCount();
+        Object[] values = new Object[n];
+        for (int v = 0; v < n; v++) {
+            values[v] = ((AttributeRow) index.getNode(v).getNodeData().getAttributes()).getValue(column);
+        }
+        int[] community = assign(values);
+        //mostly stale ids, start over so that they stay compact
+        int used = countUsed(community);
+        if (ids.size() > 2 * used + 16) {
+            ids.clear();
+            community = assign(values);
+        }
+        return community;
+    }
+
+    private int[] assign(Object[] values) {
+        int[] community = new int[values.length];
+        for (int v = 0; v < values.length; v++) {
+            Object value = values[v];
+            if (value == null) {
+                community[v] = -1;
+                continue;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = ids.size();
+                ids.put(value, id);
+            }
+            community[v] = id;
+        }
+        return community;
+    }
+
+    private int countUsed(int[] community) {
+        boolean[] used = new boolean[ids.size()];
+        int count = 0;
+        for (int c : community) {
+            if (c >= 0 && !used[c]) {
+                used[c] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,241 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+
+/**
+ * Trees hanging off an undirected graph, found by stripping degree-1 nodes
+ * until none is left. Every stripped node hangs below a root that stays:
+ * a node of the 2-core, or the last node of a component that is a tree.
+ * <p>
+ * A shortest path leaving a hanging tree goes through its root, so the
+ * tree nodes need no traversal of their own: the Brandes pass runs from
+ * the roots on the core only, each root standing for its whole tree, and
+ * {@link PrunedBridginessKernel} adds the tree nodes back from their depth
+ * counts. Distances only matter up to the largest threshold, so depths are
+ * counted in <code>levels + 1</code> buckets, the last one holding
+ * everything from <code>levels</code> on.
+ *
+ * @author MM@IXXI
+ */
+final class PendantTrees {
+
+    //the graph without the stripped nodes' arcs, same node numbering
+    final GraphIndex core;
+    final int levels;
+    //block of the tree hanging below each node, -1 for none
+    final int[] slot;
+    //per block, nodes of the tree at depth >= g for g in 0..levels, root included
+    final double[] above;
+    //per block, tree nodes from the root down, parents before children
+    final int[] treeOffsets;
+    final int[] treeNodes;
+    //position of the parent within the block, -1 for the root
+    final int[] treeParents;
+    final int largestTree;
+    //roots and core nodes with arcs left, ascending
+    final int[] sources;
+    final int stripped;
+
+    private PendantTrees(GraphIndex core, int levels, int[] slot, double[] above, int[] treeOffsets,
+            int[] treeNodes, int[] treeParents, int largestTree, int[] sources, int stripped) {
+        this.core = core;
+        this.levels = levels;
+        this.slot = slot;
+        this.above = above;
+        this.treeOffsets = treeOffsets;
+        this.treeNodes = treeNodes;
+        this.treeParents = treeParents;
+        this.largestTree = largestTree;
+        this.sources = sources;
+        this.stripped = stripped;
+    }
+
+    /**
+     * @param index an undirected snapshot, every edge listed from both ends
+     * @param levels largest distance the thresholds tell apart
+     * @return the hanging trees, <code>null</code> if no node has degree 1
+     */
+    static PendantTrees strip(GraphIndex index, int levels) {
+        int n = index.getNodeCount();
+        int[] offsets = index.offsets;
+        int[] targets = index.targets;
+
+        //distinct neighbors, self-loops and parallel edges left out
+        int[] degree = new int[n];
+        int[] seen = new int[n];
+        Arrays.fill(seen, -1);
+        for (int v = 0; v < n; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                if (w != v && seen[w] != v) {
+                    seen[w] = v;
+                    degree[v]++;
+                }
+            }
+        }
+        seen = null;
+
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (degree[v] == 1) {
+                queue[tail++] = v;
+            }
+        }
+        if (tail == 0) {
+            return null;
+        }
+        int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+        boolean[] removed = new boolean[n];
+        int stripped = 0;
+        for (int head = 0; head < tail; head++) {
+            int x = queue[head];
+            //the last node of a tree component drops to 0 and stays as its root
+            if (degree[x] != 1) {
+                continue;
+            }
+            int p = -1;
+            for (int e = offsets[x]; e < offsets[x + 1] && p < 0; e++) {
+                int w = targets[e];
+                if (w != x && !removed[w]) {
+                    p = w;
+                }
+            }
+            removed[x] = true;
+            parent[x] = p;
+            degree[x] = 0;
+            stripped++;
+            if (--degree[p] == 1) {
+                queue[tail++] = p;
+            }
+        }
+
+        //children lists, then every tree from its root down
+        int[] childOffsets = new int[n + 1];
+        for (int x = 0; x < n; x++) {
+            if (parent[x] >= 0) {
+                childOffsets[parent[x] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            childOffsets[v + 1] += childOffsets[v];
+        }
+        int[] children = new int[stripped];
+        int[] fill = Arrays.copyOf(childOffsets, n);
+        for (int x = 0; x < n; x++) {
+            if (parent[x] >= 0) {
+                children[fill[parent[x]]++] = x;
+            }
+        }
+        fill = null;
+
+        int roots = 0;
+        for (int v = 0; v < n; v++) {
+            if (!removed[v] && childOffsets[v + 1] > childOffsets[v]) {
+                roots++;
+            }
+        }
+        int[] slot = new int[n];
+        Arrays.fill(slot, -1);
+        double[] above = new double[roots * (levels + 1)];
+        int[] treeOffsets = new int[roots + 1];
+        int[] treeNodes = new int[roots + stripped];
+        int[] treeParents = new int[roots + stripped];
+        int[] depth = queue;
+        int largestTree = 0;
+        int block = 0;
+        int size = 0;
+        for (int r = 0; r < n; r++) {
+            if (removed[r] || childOffsets[r + 1] == childOffsets[r]) {
+                continue;
+            }
+            slot[r] = block;
+            int start = size;
+            treeOffsets[block] = start;
+            treeNodes[size] = r;
+            treeParents[size] = -1;
+            depth[r] = 0;
+            size++;
+            //breadth first, so parents come before children
+            for (int i = start; i < size; i++) {
+                int v = treeNodes[i];
+                above[block * (levels + 1) + Math.min(depth[v], levels)]++;
+                for (int c = childOffsets[v]; c < childOffsets[v + 1]; c++) {
+                    int x = children[c];
+                    depth[x] = depth[v] + 1;
+                    treeNodes[size] = x;
+                    treeParents[size] = i - start;
+                    size++;
+                }
+            }
+            for (int g = levels - 1; g >= 0; g--) {
+                above[block * (levels + 1) + g] += above[block * (levels + 1) + g + 1];
+            }
+            largestTree = Math.max(largestTree, size - start);
+            block++;
+        }
+        treeOffsets[roots] = size;
+
+        //the core keeps the arcs between nodes that stay
+        int[] coreOffsets = new int[n + 1];
+        int arcs = 0;
+        for (int v = 0; v < n; v++) {
+            coreOffsets[v] = arcs;
+            if (!removed[v]) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    if (!removed[targets[e]]) {
+                        arcs++;
+                    }
+                }
+            }
+        }
+        coreOffsets[n] = arcs;
+        int[] coreTargets = new int[arcs];
+        float[] coreWeights = new float[arcs];
+        int[] sources = new int[n - stripped];
+        int count = 0;
+        arcs = 0;
+        for (int v = 0; v < n; v++) {
+            if (removed[v]) {
+                continue;
+            }
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (!removed[targets[e]]) {
+                    coreTargets[arcs] = targets[e];
+                    coreWeights[arcs] = index.weights[e];
+                    arcs++;
+                }
+            }
+            //isolated nodes are nobody's source nor target
+            if (slot[v] >= 0 || coreOffsets[v + 1] > coreOffsets[v]) {
+                sources[count++] = v;
+            }
+        }
+
+        return new PendantTrees(GraphIndex.of(coreOffsets, coreTargets, coreWeights), levels, slot, above,
+                treeOffsets, treeNodes, treeParents, largestTree, Arrays.copyOf(sources, count), stripped);
+    }
+
+    /**
+     * @return the largest distance thresholds and radii tell apart, every
+     * longer distance falls in the same bucket
+     */
+    static int levels(int[] minPathLengths, int[] exclRadii) {
+        int levels = 1;
+        for (int length : minPathLengths) {
+            levels = Math.max(levels, length);
+        }
+        for (int radius : exclRadii) {
+            levels = Math.max(levels, radius + 1);
+        }
+        return levels;
+    }
+
+    /**
+     * @return the number of roots trees hang from
+     */
+    int getRootCount() {
+        return treeOffsets.length - 1;
+    }
+}
@@ -0,0 +1,179 @@
+package org.ixxi.bridginess;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wall time, CPU time and allocation of each phase of a run, plus named
+ * counters. CPU time and allocation are those of the thread running the
+ * phase, plus whatever worker threads report through
+ * {@link #addWorkers(long, long)}; -1 where the JVM cannot measure them.
+ *
+ * @author MM@IXXI
+ */
+public final class PhaseProfile {
+
+    /**
+     * One measured phase.
+     */
+    public static final class Phase {
+
+        private final String name;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return CPU time of the phase, -1 if unsupported
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * @return bytes allocated during the phase, -1 if unsupported
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    private final List<Phase> phases = new ArrayList<Phase>();
+    private final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+    private Phase current;
+    private long startWall;
+    private long startCpu;
+    private long startAllocated;
+
+    /**
+     * Ends the running phase and starts <code>name</code>, replacing an
+     * earlier measure of the same phase.
+     */
+    synchronized void begin(String name) {
+        end();
+        for (int i = 0; i < phases.size(); i++) {
+            if (phases.get(i).name.equals(name)) {
+                phases.remove(i);
+                break;
+            }
+        }
+        current = new Phase(name);
+        phases.add(current);
+        startWall = System.nanoTime();
+        startCpu = cpuTime();
+        startAllocated = allocatedBytes();
+    }
+
+    /**
+     * @return the phase just ended, <code>null</code> if none was running
+     */
+    synchronized Phase end() {
+        Phase phase = current;
+        if (phase == null) {
+            return null;
+        }
+        phase.wallNanos = System.nanoTime() - startWall;
+        phase.cpuNanos = delta(startCpu, cpuTime(), phase.cpuNanos);
+        phase.allocatedBytes = delta(startAllocated, allocatedBytes(), phase.allocatedBytes);
+        current = null;
+        return phase;
+    }
+
+    /**
+     * Adds the CPU time and allocation of worker threads to the running
+     * phase.
+     */
+    synchronized void addWorkers(long cpuNanos, long allocatedBytes) {
+        if (current == null) {
+            return;
+        }
+        current.cpuNanos = cpuNanos < 0 ? -1 : current.cpuNanos + cpuNanos;
+        current.allocatedBytes = allocatedBytes < 0 ? -1 : current.allocatedBytes + allocatedBytes;
+    }
+
+    synchronized void count(String name, long value) {
+        counters.put(name, value);
+    }
+
+    public synchronized List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<Phase>(phases));
+    }
+
+    public synchronized Map<String, Long> getCounters() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(counters));
+    }
+
+    //-1 as soon as one end is unknown
+    private static long delta(long start, long end, long sofar) {
+        return start < 0 || end < 0 || sofar < 0 ? -1 : sofar + end - start;
+    }
+
+    /**
+     * @return CPU time of the current thread, -1 if unsupported
+     */
+    static long cpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!bean.isCurrentThreadCpuTimeSupported() || !bean.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return bean.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, -1 if the JVM
+     * does not tell
+     */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+        if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return the phases and counters as two HTML tables
+     */
+    synchronized String toHtml() {
+        StringBuilder html = new StringBuilder();
+        html.append("<table border=\"1\" cellpadding=\"3\">")
+                .append("<tr><th>Phase</th><th>Wall (ms)</th><th>CPU (ms)</th><th>Allocated (MB)</th></tr>");
+        for (Phase phase : phases) {
+            html.append("<tr><td>").append(phase.name)
+                    .append("</td><td align=\"right\">").append(phase.wallNanos / 1000000)
+                    .append("</td><td align=\"right\">").append(phase.cpuNanos < 0 ? "n/a" : String.valueOf(phase.cpuNanos / 1000000))
+                    .append("</td><td align=\"right\">").append(phase.allocatedBytes < 0 ? "n/a" : String.valueOf(phase.allocatedBytes >> 20))
+                    .append("</td></tr>");
+        }
+        html.append("</table><br />");
+        html.append("<table border=\"1\" cellpadding=\"3\">");
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            html.append("<tr><td>").append(counter.getKey())
+                    .append("</td><td align=\"right\">").append(counter.getValue())
+                    .append("</td></tr>");
+        }
+        html.append("</table>");
+        return html.toString();
+    }
+}
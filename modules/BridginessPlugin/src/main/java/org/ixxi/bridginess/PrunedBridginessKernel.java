@@ -0,0 +1,272 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+
+/**
+ * {@link BridginessKernel} on the core of {@link PendantTrees}, each source
+ * standing for itself and the tree hanging below it, each reached node
+ * carrying its own tree as extra targets.
+ * <p>
+ * A tree node at depth h below the source is h hops further from every
+ * target than the source, so it counts for v where the source would count
+ * for thresholds h lower: MSPk takes F_max(1, k - h - d(v)) and EXNr needs
+ * h + d(v) &gt; r. Targets at depth g below a reached node w add 1 to every
+ * F_j(w) with j &lt;= g. Paths with an end in the source's tree that do
+ * not reach the core are unique, they are counted from the depth buckets
+ * of the tree, whose last bucket holds every depth from the largest
+ * threshold on.
+ *
+ * @author MM@IXXI
+ */
+final class PrunedBridginessKernel extends BridginessKernel {
+
+    private final PendantTrees trees;
+    private final int levels;
+    //tree workspace: depth buckets per position in the tree, below and
+    //outside of the node's subtree
+    private final double[] down;
+    private final double[] up;
+    //per position, pairs within one child subtree: betweenness, MSP, EXN
+    private final double[] within;
+    private final double[] outside;
+    private final double[] branch;
+    private final double[] result;
+
+    PrunedBridginessKernel(PendantTrees trees, int[] minPathLengths, int[] exclRadii) {
+        super(trees.core, minPathLengths, exclRadii);
+        this.trees = trees;
+        this.levels = trees.levels;
+        int buckets = levels + 1;
+        down = new double[trees.largestTree * buckets];
+        up = new double[trees.largestTree * buckets];
+        within = new double[trees.largestTree * (1 + minPathLengths.length + exclRadii.length)];
+        outside = new double[buckets];
+        branch = new double[buckets];
+        result = new double[1 + minPathLengths.length + exclRadii.length];
+    }
+
+    @Override
+    void source(int s, double scale) {
+        final int[] order = this.order;
+        final int[] d = this.d;
+        final double[] theta = this.theta;
+        final double[] delta = this.delta;
+        final int[] base = this.base;
+        final double[] betweenness = sums.betweenness;
+        final double[][] bridginessMSP = sums.bridginessMSP;
+        final double[][] bridginessEXN = sums.bridginessEXN;
+        final double[] above = trees.above;
+        int p = trees.slot[s];
+        int o = p * (levels + 1);
+        //sources s stands for
+        double size = p < 0 ? 1 : above[o];
+
+        int tail = traverse(s);
+
+        //the source gets slots too, its F_j count the targets outside its tree
+        int slots = 0;
+        for (int i = 0; i < tail; i++) {
+            int v = order[i];
+            base[v] = slots;
+            slots += levels(d[v]) - 1;
+        }
+        if (slots > far.length) {
+            far = new double[Math.max(slots, 2 * far.length)];
+        }
+        final double[] far = this.far;
+
+        for (int i = tail - 1; i >= 0; i--) {
+            int v = order[i];
+            int lv = levels(d[v]);
+            int bv = base[v];
+            Arrays.fill(far, bv, bv + lv - 1, 0);
+            double deltaV = pull(v, lv, bv);
+            delta[v] = deltaV;
+            if (i == 0) {
+                break;
+            }
+
+            betweenness[v] += scale * size * deltaV;
+            if (p < 0) {
+                for (int k = 0; k < exclRadii.length && d[v] > exclRadii[k]; k++) {
+                    bridginessEXN[k][v] += scale * far[bv + exclRadii[k] - 1];
+                }
+                for (int k = 0; k < minPathLengths.length; k++) {
+                    int j = minPathLengths[k] - d[v];
+                    bridginessMSP[k][v] += scale * (j <= 1 ? deltaV : far[bv + j - 2]);
+                }
+                continue;
+            }
+            //tree sources deep enough to be more than r hops from v
+            for (int k = 0; k < exclRadii.length; k++) {
+                int h = exclRadii[k] - d[v] + 1;
+                bridginessEXN[k][v] += scale * (h <= 0 ? size : above[o + h]) * far[bv + exclRadii[k] - 1];
+            }
+            //tree sources from depth j - 1 on reach every target beyond v
+            for (int k = 0; k < minPathLengths.length; k++) {
+                int j = minPathLengths[k] - d[v];
+                double sum = (j <= 1 ? size : above[o + j - 1]) * deltaV;
+                for (int h = 0; h < j - 1; h++) {
+                    sum += (above[o + h] - above[o + h + 1]) * far[bv + j - h - 2];
+                }
+                bridginessMSP[k][v] += scale * sum;
+            }
+        }
+        sums.shortestPaths += Math.round(size * (delta[s] + size - 1));
+        if (p >= 0) {
+            tree(s, p, scale);
+        }
+
+        for (int i = 0; i < tail; i++) {
+            int v = order[i];
+            d[v] = -1;
+            theta[v] = 0;
+        }
+    }
+
+    @Override
+    double pull(int v, int lv, int bv) {
+        double deltaV = super.pull(v, lv, bv);
+        int p = trees.slot[v];
+        if (p >= 0 && d[v] > 0) {
+            //targets hanging below v, every path to them goes through v
+            final double[] above = trees.above;
+            final double[] far = this.far;
+            int o = p * (levels + 1);
+            deltaV += above[o + 1];
+            for (int j = 2; j <= lv; j++) {
+                far[bv + j - 2] += above[o + j];
+            }
+        }
+        return deltaV;
+    }
+
+    /**
+     * Adds the paths through the nodes of the tree below source s, root
+     * included, that have an end in the tree. Both orders count for pairs
+     * inside the tree; from the tree out only, paths coming in having been
+     * counted as targets below s by the other sources.
+     */
+    private void tree(int s, int p, double scale) {
+        final int buckets = levels + 1;
+        final double[] down = this.down;
+        final double[] up = this.up;
+        final double[] within = this.within;
+        final double[] branch = this.branch;
+        int start = trees.treeOffsets[p];
+        int size = trees.treeOffsets[p + 1] - start;
+        int metrics = 1 + minPathLengths.length + exclRadii.length;
+
+        //targets outside the tree by distance from s, from its F_j
+        double[] outside = this.outside;
+        int bs = base[s];
+        for (int j = 1; j <= levels; j++) {
+            double fj = j == 1 ? delta[s] : far[bs + j - 2];
+            double fk = j == levels ? 0 : far[bs + j - 1];
+            outside[j] = fj - fk;
+        }
+        outside[0] = 0;
+
+        //depth buckets of every subtree, leaves first
+        Arrays.fill(down, 0, size * buckets, 0);
+        Arrays.fill(within, 0, size * metrics, 0);
+        for (int i = 0; i < size; i++) {
+            down[i * buckets] = 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int q = trees.treeParents[start + i];
+            shift(down, i * buckets, branch, 0);
+            for (int g = 1; g < buckets; g++) {
+                down[q * buckets + g] += branch[g];
+            }
+            addPairs(within, q * metrics, branch, 0, branch, 0, 1);
+        }
+
+        //everything outside each subtree, root first
+        System.arraycopy(outside, 0, up, 0, buckets);
+        for (int i = 1; i < size; i++) {
+            int q = trees.treeParents[start + i];
+            shift(down, i * buckets, branch, 0);
+            for (int g = 0; g < buckets; g++) {
+                branch[g] = up[q * buckets + g] + down[q * buckets + g] - branch[g];
+            }
+            shift(branch, 0, up, i * buckets);
+        }
+
+        //pairs through each node: across two of its child subtrees, or
+        //between a child subtree and the rest
+        final double[] betweenness = sums.betweenness;
+        final double[][] bridginessMSP = sums.bridginessMSP;
+        final double[][] bridginessEXN = sums.bridginessEXN;
+        final double[] result = this.result;
+        for (int i = 0; i < size; i++) {
+            if (total(down, i * buckets) == 1) {
+                //a leaf is an end of all its paths
+                continue;
+            }
+            System.arraycopy(down, i * buckets, branch, 0, buckets);
+            branch[0] = 0;
+            for (int m = 0; m < metrics; m++) {
+                result[m] = -within[i * metrics + m];
+            }
+            addPairs(result, 0, branch, 0, branch, 0, 1);
+            addPairs(result, 0, branch, 0, up, i * buckets, i == 0 ? 1 : 2);
+            int v = trees.treeNodes[start + i];
+            betweenness[v] += scale * result[0];
+            for (int k = 0; k < minPathLengths.length; k++) {
+                bridginessMSP[k][v] += scale * result[1 + k];
+            }
+            for (int k = 0; k < exclRadii.length; k++) {
+                bridginessEXN[k][v] += scale * result[1 + minPathLengths.length + k];
+            }
+        }
+    }
+
+    /**
+     * Adds to sums[o..] the ordered pairs of x[ox..] and y[oy..] buckets,
+     * times <code>times</code>: all of them, those at least k apart for
+     * every threshold, those with both ends beyond r for every radius.
+     */
+    private void addPairs(double[] sums, int o, double[] x, int ox, double[] y, int oy, double times) {
+        sums[o] += times * total(x, ox) * total(y, oy);
+        for (int k = 0; k < minPathLengths.length; k++) {
+            int length = minPathLengths[k];
+            double near = 0;
+            for (int g = 1; g < length - 1; g++) {
+                for (int h = 1; g + h < length; h++) {
+                    near += x[ox + g] * y[oy + h];
+                }
+            }
+            sums[o + 1 + k] += times * (total(x, ox) * total(y, oy) - near);
+        }
+        for (int k = 0; k < exclRadii.length; k++) {
+            sums[o + 1 + minPathLengths.length + k] += times * beyond(x, ox, exclRadii[k])
+                    * beyond(y, oy, exclRadii[k]);
+        }
+    }
+
+    private double total(double[] x, int o) {
+        double sum = 0;
+        for (int g = 0; g <= levels; g++) {
+            sum += x[o + g];
+        }
+        return sum;
+    }
+
+    private double beyond(double[] x, int o, int r) {
+        double sum = 0;
+        for (int g = r + 1; g <= levels; g++) {
+            sum += x[o + g];
+        }
+        return sum;
+    }
+
+    //one hop further: buckets move up, the last one keeps what it had
+    private void shift(double[] from, int fo, double[] to, int to0) {
+        to[to0 + levels] = from[fo + levels] + from[fo + levels - 1];
+        for (int g = levels - 1; g > 0; g--) {
+            to[to0 + g] = from[fo + g - 1];
+        }
+        to[to0] = 0;
+    }
+}
@@ -0,0 +1,140 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+
+/**
+ * Monotone radix heap (Ahuja et al. 1990) for non-negative integer keys:
+ * every pushed key must be at least the last polled one, which Dijkstra
+ * guarantees with non-negative integer weights. Bucket b holds the
+ * keys whose highest bit differing from the last polled key is b - 1, so a
+ * key moves down at most 64 times. Decrease-key pushes a new entry and the
+ * stale one is skipped when met.
+ *
+ * @author MM@IXXI
+ */
+final class RadixHeap implements NodeQueue {
+
+    private static final int BUCKETS = 65;
+
+    //current key of each node, -1 when not queued
+    private final long[] key;
+    private final int[][] ids = new int[BUCKETS][];
+    private final long[][] keys = new long[BUCKETS][];
+    private final int[] count = new int[BUCKETS];
+    private long last;
+    private int size;
+
+    RadixHeap(int n) {
+        key = new long[n];
+        Arrays.fill(key, -1);
+        for (int b = 0; b < BUCKETS; b++) {
+            ids[b] = new int[4];
+            keys[b] = new long[4];
+        }
+    }
+
+    /**
+     * @return true if every weight is a non-negative integer a double holds
+     * exactly, so that distances can be radix keys
+     */
+    static boolean accepts(double[] weights) {
+        for (double w : weights) {
+            if (!(w >= 0 && w <= (1L << 52) && w == Math.rint(w))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void push(int v, double k) {
+        long lk = (long) k;
+        if (key[v] < 0) {
+            size++;
+        } else if (lk >= key[v]) {
+            return;
+        }
+        key[v] = lk;
+        add(v, lk);
+    }
+
+    @Override
+    public int poll() {
+        while (true) {
+            if (count[0] == 0) {
+                refill();
+            }
+            int i = --count[0];
+            int v = ids[0][i];
+            if (key[v] == keys[0][i]) {
+                key[v] = -1;
+                size--;
+                return v;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int i = 0; i < count[b]; i++) {
+                key[ids[b][i]] = -1;
+            }
+            count[b] = 0;
+        }
+        last = 0;
+        size = 0;
+    }
+
+    private int bucket(long k) {
+        return k == last ? 0 : 64 - Long.numberOfLeadingZeros(k ^ last);
+    }
+
+    private void add(int v, long k) {
+        int b = bucket(k);
+        int c = count[b];
+        if (c == ids[b].length) {
+            ids[b] = Arrays.copyOf(ids[b], 2 * c);
+            keys[b] = Arrays.copyOf(keys[b], 2 * c);
+        }
+        ids[b][c] = v;
+        keys[b][c] = k;
+        count[b] = c + 1;
+    }
+
+    //moves the live entries of the first non-empty bucket down, its minimum
+    //becoming the new last key
+    private void refill() {
+        for (int b = 1; b < BUCKETS; b++) {
+            int c = count[b];
+            if (c == 0) {
+                continue;
+            }
+            int[] bids = ids[b];
+            long[] bkeys = keys[b];
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < c; i++) {
+                if (key[bids[i]] == bkeys[i] && bkeys[i] < min) {
+                    min = bkeys[i];
+                }
+            }
+            count[b] = 0;
+            if (min == Long.MAX_VALUE) {
+                //stale entries only
+                continue;
+            }
+            last = min;
+            for (int i = 0; i < c; i++) {
+                if (key[bids[i]] == bkeys[i]) {
+                    add(bids[i], bkeys[i]);
+                }
+            }
+            return;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.ixxi.bridginess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result sets of past runs, keyed by a fingerprint of the graph and of the
+ * settings, least recently used first out. One cache lives in the lookup of
+ * each workspace, so that a new {@link Bridginess} run on an unchanged
+ * graph gets its columns back without computing anything.
+ *
+ * @author MM@IXXI
+ */
+final class ResultCache {
+
+    /**
+     * The arrays of one run, already scaled. Shared with the run that made
+     * them and with every hit, never modified.
+     */
+    static final class Entry {
+
+        final double[] betweenness;
+        final double[][] bridginessMSP;
+        final double[][] bridginessEXN;
+        final String[] mspLabels;
+        final String[] exnLabels;
+        final double[] nodeentropy;
+        final double[] stirling;
+        final int communities;
+        final long shortestPaths;
+        final int sampledSources;
+        final double errorBound;
+
+        Entry(double[] betweenness, double[][] bridginessMSP, double[][] bridginessEXN,
+                String[] mspLabels, String[] exnLabels, double[] nodeentropy, double[] stirling, int communities, long shortestPaths,
+                int sampledSources, double errorBound) {
+            this.betweenness = betweenness;
+            this.bridginessMSP = bridginessMSP;
+            this.bridginessEXN = bridginessEXN;
+            this.mspLabels = mspLabels;
+            this.exnLabels = exnLabels;
+            this.nodeentropy = nodeentropy;
+            this.stirling = stirling;
+            this.communities = communities;
+            this.shortestPaths = shortestPaths;
+            this.sampledSources = sampledSources;
+            this.errorBound = errorBound;
+        }
+    }
+
+    private int capacity;
+    //access order, eldest first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    ResultCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Drops the least recently used entries beyond <code>capacity</code>.
+     */
+    synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        while (entries.size() > capacity) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * @return the result set stored under <code>key</code>, now the most
+     * recently used, or <code>null</code>
+     */
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(String key, Entry entry) {
+        if (capacity > 0) {
+            entries.put(key, entry);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
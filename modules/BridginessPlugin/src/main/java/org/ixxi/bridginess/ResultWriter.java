@@ -0,0 +1,62 @@
+package org.ixxi.bridginess;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeRow;
+
+/**
+ * Writes several per-node result arrays to their node columns in a single
+ * pass: each row is fetched once for all the columns, and a value already
+ * in the row is not set again, so that unchanged cells (zeros on leaves,
+ * values repeated between anytime publishes) fire no attribute event.
+ *
+ * @author MM@IXXI
+ */
+final class ResultWriter {
+
+    private final List<AttributeColumn> columns = new ArrayList<AttributeColumn>();
+    private final List<double[]> values = new ArrayList<double[]>();
+
+    /**
+     * Queues <code>values</code>, indexed like the {@link GraphIndex}, for
+     * <code>column</code>. A <code>null</code> column is skipped.
+     */
+    ResultWriter add(AttributeColumn column, double[] values) {
+        if (column != null) {
+            columns.add(column);
+            this.values.add(values);
+        }
+        return this;
+    }
+
+    boolean isEmpty() {
+        return columns.isEmpty();
+    }
+
+    /**
+     * @return the number of cells actually changed
+     */
+    long write(GraphIndex index) {
+        int width = columns.size();
+        if (width == 0) {
+            return 0;
+        }
+        AttributeColumn[] cols = columns.toArray(new AttributeColumn[width]);
+        double[][] vals = values.toArray(new double[width][]);
+        long changed = 0;
+        for (int v = 0; v < index.getNodeCount(); v++) {
+            AttributeRow row = (AttributeRow) index.getNode(v).getNodeData().getAttributes();
+            for (int k = 0; k < width; k++) {
+                double value = vals[k][v];
+                Object old = row.getValue(cols[k]);
+                if (old instanceof Double && ((Double) old).doubleValue() == value) {
+                    continue;
+                }
+                row.setValue(cols[k], value);
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
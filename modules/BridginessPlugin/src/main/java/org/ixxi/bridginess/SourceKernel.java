@@ -0,0 +1,22 @@
+package org.ixxi.bridginess;
+
+/**
+ * Per-thread workspace of the Brandes pass: accumulates the dependencies of
+ * one source at a time into {@link #sums}.
+ *
+ * @author MM@IXXI
+ */
+abstract class SourceKernel {
+
+    final Accumulators sums;
+
+    SourceKernel(Accumulators sums) {
+        this.sums = sums;
+    }
+
+    /**
+     * Accumulates the dependencies of source <code>s</code>, multiplied by
+     * <code>scale</code> (1 for exact runs, N_h / m_h for sampled sources).
+     */
+    abstract void source(int s, double scale);
+}
@@ -0,0 +1,120 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Pivot sources for approximate bridginess (Brandes and Pich 2007): the
+ * Brandes pass only runs from <code>sources</code>, each contribution being
+ * scaled by the matching entry of <code>scales</code> so that the sum is an
+ * unbiased estimate of the all-sources value.
+ *
+ * @author MM@IXXI
+ */
+final class SourceSample {
+
+    final int[] sources;
+    final double[] scales;
+
+    private SourceSample(int[] sources, double[] scales) {
+        this.sources = sources;
+        this.scales = scales;
+    }
+
+    /**
+     * Number of sources for an absolute error of at most
+     * <code>epsilon * N * (N - 2)</code> on every node with probability
+     * <code>1 - delta</code> (Hoeffding, union bound over the nodes).
+     */
+    static int sampleSize(int n, double epsilon, double delta) {
+        double m = Math.ceil(Math.log(2.0 * n / delta) / (2 * epsilon * epsilon));
+        return (int) Math.min(n, Math.max(1, m));
+    }
+
+    /**
+     * Half-width of the <code>1 - delta</code> confidence interval holding
+     * for every node at once. A source contributes at most <code>N - 2</code>
+     * to a node, times its scale.
+     */
+    double errorBound(int n, double delta) {
+        double squares = 0;
+        for (double scale : scales) {
+            squares += scale * scale;
+        }
+        return errorBound(n, squares, delta);
+    }
+
+    /**
+     * Same bound for <code>m</code> uniform sources, each scaled by N / m.
+     */
+    static double uniformErrorBound(int n, int m, double delta) {
+        return errorBound(n, (double) n * n / m, delta);
+    }
+
+    private static double errorBound(int n, double squaredScales, double delta) {
+        return Math.max(0, n - 2) * Math.sqrt(squaredScales * Math.log(2.0 * n / delta) / 2);
+    }
+
+    /**
+     * <code>m</code> distinct sources drawn uniformly, each scaled by N / m.
+     */
+    static SourceSample uniform(int n, int m, Random random) {
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) {
+            all[i] = i;
+        }
+        //partial Fisher-Yates
+        for (int i = 0; i < m; i++) {
+            int j = i + random.nextInt(n - i);
+            int t = all[i];
+            all[i] = all[j];
+            all[j] = t;
+        }
+        double[] scales = new double[m];
+        Arrays.fill(scales, (double) n / m);
+        return new SourceSample(Arrays.copyOf(all, m), scales);
+    }
+
+    /**
+     * <code>m</code> distinct sources drawn from equal-size degree strata
+     * with proportional allocation, so hubs and leaves are both represented.
+     * Sources of stratum h are scaled by N_h / m_h.
+     */
+    static SourceSample degreeStratified(final GraphIndex index, int m, int strata, Random random) {
+        int n = index.getNodeCount();
+        strata = Math.max(1, Math.min(strata, m));
+        Integer[] byDegree = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            byDegree[i] = i;
+        }
+        Arrays.sort(byDegree, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int da = index.offsets[a + 1] - index.offsets[a];
+                int db = index.offsets[b + 1] - index.offsets[b];
+                return da < db ? -1 : (da == db ? a.compareTo(b) : 1);
+            }
+        });
+
+        int[] sources = new int[m];
+        double[] scales = new double[m];
+        int taken = 0;
+        for (int h = 0; h < strata; h++) {
+            int from = (int) ((long) n * h / strata);
+            int to = (int) ((long) n * (h + 1) / strata);
+            int mh = (int) ((long) m * (h + 1) / strata) - (int) ((long) m * h / strata);
+            mh = Math.min(mh, to - from);
+            for (int i = 0; i < mh; i++) {
+                int j = from + i + random.nextInt(to - from - i);
+                Integer t = byDegree[from + i];
+                byDegree[from + i] = byDegree[j];
+                byDegree[j] = t;
+                sources[taken] = byDegree[from + i];
+                scales[taken] = (double) (to - from) / mh;
+                taken++;
+            }
+        }
+        return new SourceSample(Arrays.copyOf(sources, taken), Arrays.copyOf(scales, taken));
+    }
+}
@@ -0,0 +1,228 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+
+/**
+ * Brandes 2001 accumulation on edge weights: Dijkstra from each source on an
+ * {@link IndexedHeap}, counting tied shortest paths, then the dependency
+ * pass in reverse settle order. Weights must be positive. Thresholds
+ * and radii are distances in weight units.
+ * <p>
+ * The target set of a minimum path length L, d(s, t) &gt;= L, does not
+ * depend on v, so each L gets its own dependency recurrence. An exclusion
+ * radius R drops the targets with d(t) &lt;= d(v) + R, which does: their
+ * share is found by counting shortest paths over the part of the
+ * shortest-path DAG within R of v and subtracted from the delta.
+ *
+ * @author MM@IXXI
+ */
+final class WeightedBridginessKernel extends SourceKernel {
+
+    //relative slack under which two path lengths are ties
+    private static final double TIE = 1e-12;
+
+    private final GraphIndex index;
+    private final double[] minPathLengths;
+    private final double[] exclRadii;
+    private final double[] weights;
+
+    //workspace, order[0..reached) are the nodes settled by the last source
+    private final IndexedHeap heap;
+    private final int[] order;
+    private final int[] rank;
+    private final double[] d;
+    private final double[] sigma;
+    private final double[] delta;
+    private final double[][] deltaMSP;
+    //exclusion ball around v, tagged with stamp
+    private final int[] stamp;
+    private final int[] ball;
+    private final double[] paths;
+    private final double[] near;
+    private int currentStamp;
+
+    /**
+     * @param minPathLengths sorted weighted thresholds
+     * @param exclRadii sorted weighted exclusion radii
+     */
+    WeightedBridginessKernel(GraphIndex index, double[] minPathLengths, double[] exclRadii) {
+        super(new Accumulators(index.getNodeCount(), minPathLengths.length, exclRadii.length));
+        this.index = index;
+        this.minPathLengths = minPathLengths;
+        this.exclRadii = exclRadii;
+        int n = index.getNodeCount();
+        weights = new double[index.getEdgeCount()];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = index.weights[e];
+        }
+        heap = new IndexedHeap(n);
+        order = new int[n];
+        rank = new int[n];
+        d = new double[n];
+        sigma = new double[n];
+        delta = new double[n];
+        deltaMSP = new double[minPathLengths.length][n];
+        stamp = new int[n];
+        ball = new int[n];
+        paths = new double[n];
+        near = new double[exclRadii.length];
+        Arrays.fill(rank, -1);
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+    }
+
+    static boolean tie(double a, double b) {
+        return Math.abs(a - b) <= TIE * Math.min(a, b);
+    }
+
+    @Override
+    void source(int s, double scale) {
+        final int[] offsets = index.offsets;
+        final int[] targets = index.targets;
+        final double[] weights = this.weights;
+        final int[] order = this.order;
+        final int[] rank = this.rank;
+        final double[] d = this.d;
+        final double[] sigma = this.sigma;
+        final double[] delta = this.delta;
+        final double[] betweenness = sums.betweenness;
+        final double[][] bridginessMSP = sums.bridginessMSP;
+        final double[][] bridginessEXN = sums.bridginessEXN;
+
+        //Dijkstra, settle order read backwards is the Brandes stack
+        d[s] = 0;
+        sigma[s] = 1;
+        heap.push(s, 0);
+        int tail = 0;
+        long relaxed = 0;
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            rank[v] = tail;
+            order[tail++] = v;
+            relaxed += offsets[v + 1] - offsets[v];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                if (rank[w] >= 0) {
+                    continue;
+                }
+                double dist = d[v] + weights[e];
+                if (tie(dist, d[w])) {
+                    sigma[w] += sigma[v];
+                } else if (dist < d[w]) {
+                    d[w] = dist;
+                    sigma[w] = sigma[v];
+                    heap.push(w, dist);
+                }
+            }
+        }
+
+        sums.shortestPaths += tail - 1;
+        sums.edgesRelaxed += relaxed;
+
+        //dependencies pulled from the DAG successors, all settled after v
+        for (int i = tail - 1; i > 0; i--) {
+            int v = order[i];
+            double deltaV = 0;
+            for (int k = 0; k < minPathLengths.length; k++) {
+                deltaMSP[k][v] = 0;
+            }
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                if (rank[w] <= rank[v] || !tie(d[v] + weights[e], d[w])) {
+                    continue;
+                }
+                double coef = sigma[v] / sigma[w];
+                deltaV += coef * (1 + delta[w]);
+                for (int k = 0; k < minPathLengths.length; k++) {
+                    double far = d[w] >= minPathLengths[k] ? 1 : 0;
+                    deltaMSP[k][v] += coef * (far + deltaMSP[k][w]);
+                }
+            }
+            delta[v] = deltaV;
+
+            betweenness[v] += scale * deltaV;
+            //Filter out too short shortest paths
+            for (int k = 0; k < minPathLengths.length; k++) {
+                bridginessMSP[k][v] += scale * deltaMSP[k][v];
+            }
+            //Filter out neighbors - from the beginning to the other end
+            int radii = 0;
+            while (radii < exclRadii.length && d[v] > exclRadii[radii]) {
+                radii++;
+            }
+            if (radii > 0) {
+                excludeNear(v, radii, scale);
+            }
+        }
+
+        //reset what this source touched
+        for (int i = 0; i < tail; i++) {
+            int v = order[i];
+            rank[v] = -1;
+            d[v] = Double.POSITIVE_INFINITY;
+            sigma[v] = 0;
+        }
+    }
+
+    /**
+     * Adds the EXN values of v for its first <code>radii</code> radii: delta
+     * minus the dependency on the targets t with d(t) &lt;= d(v) + R, which is
+     * sigma(v) times the sum of paths(v, t) / sigma(t) over the DAG.
+     */
+    private void excludeNear(int v, int radii, double scale) {
+        final int[] offsets = index.offsets;
+        final int[] targets = index.targets;
+        final int[] rank = this.rank;
+        final double[] d = this.d;
+        double limit = d[v] + exclRadii[radii - 1];
+        if (++currentStamp == 0) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+
+        //collect the DAG descendants of v within the largest radius
+        int size = 0;
+        stamp[v] = currentStamp;
+        ball[size++] = rank[v];
+        for (int head = 0; head < size; head++) {
+            int u = order[ball[head]];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int w = targets[e];
+                if (stamp[w] == currentStamp || rank[w] <= rank[u] || d[w] > limit
+                        || !tie(d[u] + weights[e], d[w])) {
+                    continue;
+                }
+                stamp[w] = currentStamp;
+                ball[size++] = rank[w];
+            }
+        }
+
+        //count the paths from v in settle order
+        Arrays.sort(ball, 0, size);
+        for (int i = 0; i < size; i++) {
+            paths[order[ball[i]]] = 0;
+        }
+        paths[v] = 1;
+        for (int i = 0; i < size; i++) {
+            int u = order[ball[i]];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int w = targets[e];
+                if (stamp[w] == currentStamp && rank[w] > rank[u] && tie(d[u] + weights[e], d[w])) {
+                    paths[w] += paths[u];
+                }
+            }
+        }
+
+        final double[] near = this.near;
+        Arrays.fill(near, 0, radii, 0);
+        for (int i = 1; i < size; i++) {
+            int t = order[ball[i]];
+            double share = paths[t] / sigma[t];
+            for (int k = radii - 1; k >= 0 && d[t] <= d[v] + exclRadii[k]; k--) {
+                near[k] += share;
+            }
+        }
+        for (int k = 0; k < radii; k++) {
+            sums.bridginessEXN[k][v] += scale * (delta[v] - sigma[v] * near[k]);
+        }
+    }
+}
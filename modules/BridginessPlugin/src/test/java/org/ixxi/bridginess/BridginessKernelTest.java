@@ -0,0 +1,309 @@
+package org.ixxi.bridginess;
+
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import org.junit.Test;
+
+/**
+ * {@link BridginessKernel}, {@link PrunedBridginessKernel} and
+ * {@link WeightedBridginessKernel} against all pairs shortest paths counted
+ * by brute force, on small graphs whose distances go past the largest
+ * threshold. Weights are multiples of 0.5, so that ties and thresholds are
+ * met exactly.
+ *
+ * @author MM@IXXI
+ */
+public class BridginessKernelTest {
+
+    private static final int[] LENGTHS = {2, 3, 5};
+    private static final int[] RADII = {1, 2};
+    private static final double[] WEIGHTED_LENGTHS = {1.5, 3, 4.5};
+    private static final double[] WEIGHTED_RADII = {1, 2.5};
+    private static final double EPSILON = 1e-9;
+
+    //a path of 7 hops with branches, deeper than every threshold
+    private static final int[][] TREE = {
+        {0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 7},
+        {2, 8}, {8, 9}, {4, 10}, {0, 11}, {11, 12}};
+
+    //a 6-cycle with a chain, a branching tree and a leaf hanging off it
+    private static final int[][] CYCLE_WITH_PENDANTS = {
+        {0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 0},
+        {0, 6}, {6, 7}, {7, 8},
+        {3, 9}, {9, 10}, {9, 11}, {11, 12},
+        {4, 13}};
+
+    //a square with a pendant, a separate path, a separate star and node 15 alone
+    private static final int[][] DISCONNECTED = {
+        {0, 1}, {1, 2}, {2, 3}, {3, 0}, {2, 4},
+        {5, 6}, {6, 7}, {7, 8}, {8, 9},
+        {10, 11}, {10, 12}, {10, 13}, {13, 14}};
+
+    @Test
+    public void plainKernelOnTree() {
+        checkPlain(index(13, TREE));
+    }
+
+    @Test
+    public void plainKernelOnCycleWithPendants() {
+        checkPlain(index(14, CYCLE_WITH_PENDANTS));
+    }
+
+    @Test
+    public void plainKernelOnDisconnectedGraph() {
+        checkPlain(index(16, DISCONNECTED));
+    }
+
+    @Test
+    public void prunedKernelOnTree() {
+        checkPruned(index(13, TREE));
+    }
+
+    @Test
+    public void prunedKernelOnCycleWithPendants() {
+        checkPruned(index(14, CYCLE_WITH_PENDANTS));
+    }
+
+    @Test
+    public void prunedKernelOnDisconnectedGraph() {
+        checkPruned(index(16, DISCONNECTED));
+    }
+
+    @Test
+    public void weightedKernelUndirected() {
+        for (long seed = 1; seed <= 4; seed++) {
+            checkWeighted(random(25, 40, false, seed));
+        }
+    }
+
+    @Test
+    public void weightedKernelDirected() {
+        for (long seed = 1; seed <= 4; seed++) {
+            checkWeighted(random(25, 70, true, seed));
+        }
+    }
+
+    @Test
+    public void unitWeightsGiveHops() {
+        GraphIndex[] graphs = {index(13, TREE), index(14, CYCLE_WITH_PENDANTS), index(16, DISCONNECTED),
+            random(25, 70, true, 5)};
+        for (GraphIndex graph : graphs) {
+            GraphIndex index = GraphIndex.of(graph.offsets, graph.targets, unitWeights(graph.targets.length));
+            BridginessKernel hops = new BridginessKernel(index, LENGTHS, RADII);
+            WeightedBridginessKernel weighted = new WeightedBridginessKernel(index,
+                    toDoubles(LENGTHS), toDoubles(RADII));
+            for (int s = 0; s < index.getNodeCount(); s++) {
+                hops.source(s, 1);
+                weighted.source(s, 1);
+            }
+            assertEquals(hops.sums.shortestPaths, weighted.sums.shortestPaths);
+            assertArrayEquals("betweenness", hops.sums.betweenness, weighted.sums.betweenness, 0);
+            for (int k = 0; k < LENGTHS.length; k++) {
+                assertArrayEquals("MSP" + LENGTHS[k], hops.sums.bridginessMSP[k], weighted.sums.bridginessMSP[k], 0);
+            }
+            for (int k = 0; k < RADII.length; k++) {
+                //delta minus the near share on weights, the F recurrence on hops: rounding differs
+                assertArrayEquals("EXN" + RADII[k], hops.sums.bridginessEXN[k], weighted.sums.bridginessEXN[k], 1e-12);
+            }
+        }
+    }
+
+    private static void checkPlain(GraphIndex index) {
+        BridginessKernel kernel = new BridginessKernel(index, LENGTHS, RADII);
+        for (int s = 0; s < index.getNodeCount(); s++) {
+            kernel.source(s, 1);
+        }
+        check(index, kernel.sums);
+    }
+
+    private static void checkPruned(GraphIndex index) {
+        PendantTrees trees = PendantTrees.strip(index, PendantTrees.levels(LENGTHS, RADII));
+        assertNotNull(trees);
+        PrunedBridginessKernel kernel = new PrunedBridginessKernel(trees, LENGTHS, RADII);
+        for (int s : trees.sources) {
+            kernel.source(s, 1);
+        }
+        check(index, kernel.sums);
+    }
+
+    private static void checkWeighted(GraphIndex index) {
+        WeightedBridginessKernel kernel = new WeightedBridginessKernel(index, WEIGHTED_LENGTHS, WEIGHTED_RADII);
+        for (int s = 0; s < index.getNodeCount(); s++) {
+            kernel.source(s, 1);
+        }
+        check(index, kernel.sums, WEIGHTED_LENGTHS, WEIGHTED_RADII);
+    }
+
+    private static void check(GraphIndex index, Accumulators sums) {
+        check(index, sums, toDoubles(LENGTHS), toDoubles(RADII));
+    }
+
+    static void check(GraphIndex index, Accumulators sums, double[] lengths, double[] radii) {
+        AllPairs pairs = new AllPairs(index);
+        assertEquals(pairs.connectedPairs(), sums.shortestPaths);
+        assertArrayEquals("betweenness", pairs.through(0, 0), sums.betweenness, EPSILON);
+        for (int k = 0; k < lengths.length; k++) {
+            assertArrayEquals("MSP" + lengths[k], pairs.through(lengths[k], 0), sums.bridginessMSP[k], EPSILON);
+        }
+        for (int k = 0; k < radii.length; k++) {
+            assertArrayEquals("EXN" + radii[k], pairs.through(0, radii[k]), sums.bridginessEXN[k], EPSILON);
+        }
+    }
+
+    static void assertArrayEquals(String metric, double[] expected, double[] actual, double epsilon) {
+        for (int v = 0; v < expected.length; v++) {
+            assertEquals(metric + " of node " + v, expected[v], actual[v], epsilon * (1 + Math.abs(expected[v])));
+        }
+    }
+
+    private static double[] toDoubles(int[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i];
+        }
+        return doubles;
+    }
+
+    private static float[] unitWeights(int arcs) {
+        float[] weights = new float[arcs];
+        Arrays.fill(weights, 1);
+        return weights;
+    }
+
+    /**
+     * Random arcs with weights among 0.5, 1, ..., 3, parallel arcs and
+     * self-loops included; undirected edges listed from both ends.
+     */
+    static GraphIndex random(int n, int edges, boolean directed, long seed) {
+        Random random = new Random(seed);
+        int[][] list = new int[edges][2];
+        float[] edgeWeights = new float[edges];
+        for (int i = 0; i < edges; i++) {
+            list[i][0] = random.nextInt(n);
+            list[i][1] = random.nextInt(n);
+            edgeWeights[i] = 0.5f * (1 + random.nextInt(6));
+        }
+        return index(n, list, edgeWeights, directed);
+    }
+
+    //undirected, unit weights
+    static GraphIndex index(int n, int[][] edges) {
+        return index(n, edges, unitWeights(edges.length), false);
+    }
+
+    //undirected edges are listed from both ends, self-loops once
+    static GraphIndex index(int n, int[][] edges, float[] edgeWeights, boolean directed) {
+        int[] offsets = new int[n + 1];
+        for (int[] e : edges) {
+            offsets[e[0] + 1]++;
+            if (!directed && e[0] != e[1]) {
+                offsets[e[1] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] targets = new int[offsets[n]];
+        float[] weights = new float[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < edges.length; i++) {
+            int[] e = edges[i];
+            weights[fill[e[0]]] = edgeWeights[i];
+            targets[fill[e[0]]++] = e[1];
+            if (!directed && e[0] != e[1]) {
+                weights[fill[e[1]]] = edgeWeights[i];
+                targets[fill[e[1]]++] = e[0];
+            }
+        }
+        return GraphIndex.of(offsets, targets, weights);
+    }
+
+    /**
+     * Distances and shortest path counts between every pair, one quadratic
+     * Dijkstra per node on the arc weights.
+     */
+    static final class AllPairs {
+
+        private final int n;
+        private final double[][] dist;
+        private final double[][] sigma;
+
+        AllPairs(GraphIndex index) {
+            n = index.getNodeCount();
+            dist = new double[n][n];
+            sigma = new double[n][n];
+            for (int s = 0; s < n; s++) {
+                double[] d = dist[s];
+                Arrays.fill(d, Double.POSITIVE_INFINITY);
+                d[s] = 0;
+                sigma[s][s] = 1;
+                boolean[] settled = new boolean[n];
+                while (true) {
+                    int v = -1;
+                    for (int u = 0; u < n; u++) {
+                        if (!settled[u] && d[u] < Double.POSITIVE_INFINITY && (v < 0 || d[u] < d[v])) {
+                            v = u;
+                        }
+                    }
+                    if (v < 0) {
+                        break;
+                    }
+                    settled[v] = true;
+                    for (int e = index.offsets[v]; e < index.offsets[v + 1]; e++) {
+                        int w = index.targets[e];
+                        double through = d[v] + index.weights[e];
+                        if (settled[w]) {
+                            continue;
+                        }
+                        if (through < d[w]) {
+                            d[w] = through;
+                            sigma[s][w] = sigma[s][v];
+                        } else if (through == d[w]) {
+                            sigma[s][w] += sigma[s][v];
+                        }
+                    }
+                }
+            }
+        }
+
+        long connectedPairs() {
+            long pairs = 0;
+            for (int s = 0; s < n; s++) {
+                for (int t = 0; t < n; t++) {
+                    if (s != t && dist[s][t] < Double.POSITIVE_INFINITY) {
+                        pairs++;
+                    }
+                }
+            }
+            return pairs;
+        }
+
+        /**
+         * @return for every node v, the share of the shortest paths through
+         * v of the ordered pairs at least <code>length</code> apart, whose
+         * ends are both more than <code>radius</code> from v
+         */
+        double[] through(double length, double radius) {
+            double[] sums = new double[n];
+            for (int s = 0; s < n; s++) {
+                for (int t = 0; t < n; t++) {
+                    double st = dist[s][t];
+                    if (s == t || st == Double.POSITIVE_INFINITY || st < length) {
+                        continue;
+                    }
+                    for (int v = 0; v < n; v++) {
+                        double sv = dist[s][v];
+                        double vt = dist[v][t];
+                        if (v == s || v == t || sv + vt != st || sv <= radius || vt <= radius) {
+                            continue;
+                        }
+                        sums[v] += sigma[s][v] * sigma[v][t] / sigma[s][t];
+                    }
+                }
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.ixxi.bridginess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * {@link IncrementalBrandes} after edge insertions and deletions, refreshed
+ * the way {@link Bridginess} does it, against a fresh exact pass on the
+ * edited graph.
+ *
+ * @author MM@IXXI
+ */
+public class IncrementalBrandesTest {
+
+    private static final int[] LENGTHS = {2, 3, 5};
+    private static final int[] RADII = {1, 2};
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void undirectedEditsInOneComponent() {
+        checkEdits(false);
+    }
+
+    @Test
+    public void directedEditsInOneComponent() {
+        checkEdits(true);
+    }
+
+    @Test
+    public void randomEdits() {
+        int incremental = 0;
+        int fallback = 0;
+        for (long seed = 1; seed <= 40; seed++) {
+            Random random = new Random(seed);
+            boolean directed = seed % 2 == 0;
+            int n = 40;
+            List<int[]> edges = randomEdges(n, directed ? 50 : 35, random);
+            GraphIndex index = index(n, edges, directed);
+            IncrementalBrandes run = new IncrementalBrandes(index, LENGTHS, RADII, directed, exact(index));
+            for (int round = 0; round < 3; round++) {
+                edges = edit(edges, n, 1 + random.nextInt(2), random);
+                GraphIndex next = index(n, edges, directed);
+                int[] affected = run.affectedSources(next);
+                if (affected == null) {
+                    fallback++;
+                    run = new IncrementalBrandes(next, LENGTHS, RADII, directed, exact(next));
+                    continue;
+                }
+                incremental++;
+                checkUnaffected(run.getIndex(), next, affected);
+                assertSameSums(exact(next), refresh(run, next, affected));
+            }
+        }
+        assertTrue(incremental > 0);
+        assertTrue(fallback > 0);
+    }
+
+    @Test
+    public void manyEditsFallBack() {
+        int n = 40;
+        Random random = new Random(3);
+        List<int[]> edges = randomEdges(n, 60, random);
+        GraphIndex index = index(n, edges, false);
+        IncrementalBrandes run = new IncrementalBrandes(index, LENGTHS, RADII, false, exact(index));
+        //half as many changed arcs as nodes, cheaper as a full pass whatever they touch
+        List<int[]> edited = new ArrayList<int[]>(edges.subList(n / 2, edges.size()));
+        assertNull(run.affectedSources(index(n, edited, false)));
+        //a single edge in the middle of one component touches most sources
+        edited = new ArrayList<int[]>(edges);
+        edited.add(new int[]{edges.get(0)[0], edges.get(1)[1]});
+        edited.add(new int[]{edges.get(2)[0], edges.get(3)[1]});
+        edited.add(new int[]{edges.get(4)[0], edges.get(5)[1]});
+        assertNull(run.affectedSources(index(n, edited, false)));
+    }
+
+    /**
+     * Inserts then deletes edges of a 10-node component next to a denser
+     * 30-node one, refreshing after each batch, so that the sums are
+     * folded into several times.
+     */
+    private static void checkEdits(boolean directed) {
+        int n = 40;
+        Random random = new Random(directed ? 11 : 7);
+        List<int[]> edges = new ArrayList<int[]>();
+        for (int i = 0; i < 70; i++) {
+            edges.add(new int[]{random.nextInt(30), random.nextInt(30)});
+        }
+        for (int v = 30; v < 39; v++) {
+            edges.add(new int[]{v, v + 1});
+        }
+        GraphIndex index = index(n, edges, directed);
+        IncrementalBrandes run = new IncrementalBrandes(index, LENGTHS, RADII, directed, exact(index));
+
+        int[][][] batches = {
+            {{32, 36}},
+            {{38, 31}, {30, 34}},
+            {{33, 34}},
+            {{32, 36}, {38, 31}}};
+        boolean[] insert = {true, true, false, false};
+        for (int b = 0; b < batches.length; b++) {
+            for (int[] e : batches[b]) {
+                if (insert[b]) {
+                    edges.add(e);
+                } else {
+                    edges.remove(find(edges, e));
+                }
+            }
+            GraphIndex next = index(n, edges, directed);
+            int[] affected = run.affectedSources(next);
+            assertNotNull(affected);
+            checkUnaffected(run.getIndex(), next, affected);
+            assertSameSums(exact(next), refresh(run, next, affected));
+        }
+    }
+
+    //the -1 pass on the kept snapshot, the +1 pass on the edited one, then the fold
+    private static Accumulators refresh(IncrementalBrandes run, GraphIndex next, int[] affected) {
+        double[] minus = new double[affected.length];
+        Arrays.fill(minus, -1);
+        Accumulators removed = new BrandesPass(run.getIndex(), LENGTHS, RADII, 2).run(affected, minus, null);
+        Accumulators added = new BrandesPass(next, LENGTHS, RADII, 2).run(affected, null, null);
+        Accumulators sums = run.commit(next, removed, added);
+        assertTrue(run.getIndex() == next);
+        return sums;
+    }
+
+    //every source left out contributes the same before and after the edits
+    private static void checkUnaffected(GraphIndex before, GraphIndex after, int[] affected) {
+        for (int s = 0; s < before.getNodeCount(); s++) {
+            if (Arrays.binarySearch(affected, s) < 0) {
+                int[] source = {s};
+                assertSameSums(new BrandesPass(before, LENGTHS, RADII, 1).run(source, null, null),
+                        new BrandesPass(after, LENGTHS, RADII, 1).run(source, null, null));
+            }
+        }
+    }
+
+    private static Accumulators exact(GraphIndex index) {
+        int[] sources = new int[index.getNodeCount()];
+        for (int s = 0; s < sources.length; s++) {
+            sources[s] = s;
+        }
+        return new BrandesPass(index, LENGTHS, RADII, 2).run(sources, null, null);
+    }
+
+    private static void assertSameSums(Accumulators expected, Accumulators actual) {
+        assertEquals(expected.shortestPaths, actual.shortestPaths);
+        BridginessKernelTest.assertArrayEquals("betweenness", expected.betweenness, actual.betweenness, EPSILON);
+        for (int k = 0; k < LENGTHS.length; k++) {
+            BridginessKernelTest.assertArrayEquals("MSP" + LENGTHS[k], expected.bridginessMSP[k],
+                    actual.bridginessMSP[k], EPSILON);
+        }
+        for (int k = 0; k < RADII.length; k++) {
+            BridginessKernelTest.assertArrayEquals("EXN" + RADII[k], expected.bridginessEXN[k],
+                    actual.bridginessEXN[k], EPSILON);
+        }
+    }
+
+    private static List<int[]> randomEdges(int n, int count, Random random) {
+        List<int[]> edges = new ArrayList<int[]>();
+        for (int i = 0; i < count; i++) {
+            edges.add(new int[]{random.nextInt(n), random.nextInt(n)});
+        }
+        return edges;
+    }
+
+    //a copy with some edges deleted or inserted
+    private static List<int[]> edit(List<int[]> edges, int n, int count, Random random) {
+        List<int[]> edited = new ArrayList<int[]>(edges);
+        for (int i = 0; i < count; i++) {
+            if (random.nextBoolean() && !edited.isEmpty()) {
+                edited.remove(random.nextInt(edited.size()));
+            } else {
+                edited.add(new int[]{random.nextInt(n), random.nextInt(n)});
+            }
+        }
+        return edited;
+    }
+
+    private static int find(List<int[]> edges, int[] e) {
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            if (Arrays.equals(edges.get(i), e)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No edge " + Arrays.toString(e));
+    }
+
+    private static GraphIndex index(int n, List<int[]> edges, boolean directed) {
+        float[] weights = new float[edges.size()];
+        Arrays.fill(weights, 1);
+        return BridginessKernelTest.index(n, edges.toArray(new int[edges.size()][]), weights, directed);
+    }
+}
@@ -0,0 +1,274 @@
+package org.ixxi.bridginess;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link MappedGraph} built from an edge list, run through
+ * {@link MappedBridginessKernel}, against {@link BrandesPass} on the same
+ * graph on the heap, and the mapped copy the runner keeps next to its input.
+ *
+ * @author MM@IXXI
+ */
+public class MappedGraphTest {
+
+    private static final int[] LENGTHS = {2, 3, 5};
+    private static final int[] RADII = {1, 2};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void undirectedBuildMatchesHeap() throws IOException {
+        checkBuild(false);
+    }
+
+    @Test
+    public void directedBuildMatchesHeap() throws IOException {
+        checkBuild(true);
+    }
+
+    @Test
+    public void savedIndexOpensUnchanged() throws IOException {
+        GraphIndex index = BridginessKernelTest.random(30, 60, false, 9);
+        File file = new File(folder.getRoot(), "saved.csr");
+        MappedGraph.save(index, file, false);
+        MappedGraph graph = MappedGraph.open(file);
+        assertFalse(graph.isDirected());
+        assertEquals(index.getNodeCount(), graph.getNodeCount());
+        assertEquals(index.targets.length, graph.getEdgeCount());
+        for (int v = 0; v <= index.getNodeCount(); v++) {
+            assertEquals(index.offsets[v], graph.offsets.get(v));
+        }
+        for (int e = 0; e < index.targets.length; e++) {
+            assertEquals(index.targets[e], graph.targets.get(e));
+        }
+        //no source recorded, never taken for the copy of one
+        assertFalse(graph.isCopyOf(file));
+    }
+
+    @Test
+    public void runnerRebuildsStaleCopy() throws IOException {
+        File input = new File(folder.getRoot(), "graph.edges");
+        List<String[]> lines = randomLines(40, 80, new Random(5));
+        writeEdgeList(input, lines);
+        File file = new File(folder.getRoot(), "graph.csr");
+        File csv = new File(folder.getRoot(), "graph.csv");
+        String[] args = {input.getPath(), "--undirected", "--mapped", file.getPath(), "-o", csv.getPath(),
+            "--msp", "2-4"};
+
+        assertEquals(0, BridginessRunner.run(args));
+        MappedGraph graph = MappedGraph.open(file);
+        assertTrue(graph.isCopyOf(input));
+        int nodes = graph.getNodeCount();
+        HashMap<String, String[]> rows = readCsv(csv);
+        assertEquals(nodes + 1, rows.size()); //and the header
+        assertEquals(Arrays.asList("id", "label", "betweenness", "bridginessmsp2", "bridginessmsp3", "bridginessmsp4"),
+                Arrays.asList(rows.get("id")).subList(0, 6));
+
+        //same input: the copy is reused as it is
+        long old = file.lastModified() - 60000;
+        assertTrue(file.setLastModified(old));
+        assertEquals(0, BridginessRunner.run(args));
+        assertEquals(old, file.lastModified());
+
+        //same size, other time: built again
+        assertTrue(input.setLastModified(input.lastModified() - 60000));
+        assertEquals(0, BridginessRunner.run(args));
+        assertTrue(file.lastModified() != old);
+        assertTrue(MappedGraph.open(file).isCopyOf(input));
+
+        //new nodes: built again, and they are in the results
+        lines.add(new String[]{"n3", "extra"});
+        lines.add(new String[]{"extra", "other"});
+        writeEdgeList(input, lines);
+        assertEquals(0, BridginessRunner.run(args));
+        graph = MappedGraph.open(file);
+        assertTrue(graph.isCopyOf(input));
+        assertEquals(nodes + 2, graph.getNodeCount());
+        rows = readCsv(csv);
+        assertEquals(nodes + 3, rows.size()); //and the header
+        assertNotNull(rows.get("extra"));
+        assertNotNull(rows.get("other"));
+        //other hangs off extra: every path to it goes through extra, none through it
+        assertEquals(0, Double.parseDouble(rows.get("other")[2]), 0);
+        assertTrue(Double.parseDouble(rows.get("extra")[2]) >= nodes);
+
+        //a broken copy: built again
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write("not a mapped graph");
+        } finally {
+            out.close();
+        }
+        assertEquals(0, BridginessRunner.run(args));
+        assertTrue(MappedGraph.open(file).isCopyOf(input));
+    }
+
+    @Test
+    public void runnerRejectsOptionsBeforeRunning() throws IOException {
+        File input = new File(folder.getRoot(), "graph.edges");
+        writeEdgeList(input, randomLines(10, 20, new Random(1)));
+        File file = new File(folder.getRoot(), "graph.csr");
+        String[][] commands = {
+            {input.getPath(), "--mapped", file.getPath(), "--weighted"},
+            {input.getPath(), "--mapped", file.getPath(), "--msp", "3,x"},
+            {input.getPath(), "--mapped", file.getPath(), "--threads"},
+            {input.getPath(), "--mapped", file.getPath(), "--unknown", "1"}};
+        for (String[] args : commands) {
+            try {
+                BridginessRunner.run(args);
+                fail("Ran " + Arrays.toString(args));
+            } catch (BridginessRunner.UsageException ex) {
+                //nothing built for a command line that cannot run
+                assertFalse(file.exists());
+            }
+        }
+    }
+
+    /**
+     * An edge list with comments, blank lines, mixed separators, weights,
+     * self-loops and repeated lines, built to a mapped file and run through
+     * both paths.
+     */
+    private void checkBuild(boolean directed) throws IOException {
+        Random random = new Random(directed ? 3 : 2);
+        List<String[]> lines = randomLines(60, 150, random);
+        lines.add(new String[]{"n7", "n7"});
+        lines.add(new String[]{"n7", "n7"});
+        lines.add(new String[]{"n12", "n40"});
+        lines.add(new String[]{"n12", "n40"});
+        lines.add(new String[]{"n40", "n12"});
+        File input = new File(folder.getRoot(), "graph.edges");
+        writeEdgeList(input, lines);
+        File file = new File(folder.getRoot(), "graph.csr");
+        MappedGraph graph = MappedGraph.build(input, file, directed);
+        assertEquals(directed, graph.isDirected());
+        assertTrue(graph.isCopyOf(input));
+
+        //the same arcs on the heap, numbered as the mapped file numbers them
+        HashMap<String, Integer> numbers = new HashMap<String, Integer>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            numbers.put(graph.getId(v), v);
+        }
+        int[][] edges = new int[lines.size()][];
+        int arcs = 0;
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new int[]{numbers.get(lines.get(i)[0]), numbers.get(lines.get(i)[1])};
+            arcs += directed || edges[i][0] == edges[i][1] ? 1 : 2;
+        }
+        float[] weights = new float[edges.length];
+        Arrays.fill(weights, 1);
+        GraphIndex index = BridginessKernelTest.index(graph.getNodeCount(), edges, weights, directed);
+        assertEquals(numbers.size(), graph.getNodeCount());
+        assertEquals(arcs, graph.getEdgeCount());
+
+        int[] sources = new int[graph.getNodeCount()];
+        for (int s = 0; s < sources.length; s++) {
+            sources[s] = s;
+        }
+        Accumulators heap = new BrandesPass(index, LENGTHS, RADII, 2).run(sources, null, null);
+        Accumulators mapped = new BrandesPass(graph, LENGTHS, RADII, 2).run(sources, null, null);
+        assertEquals(heap.shortestPaths, mapped.shortestPaths);
+        BridginessKernelTest.assertArrayEquals("betweenness", heap.betweenness, mapped.betweenness, 0);
+        for (int k = 0; k < LENGTHS.length; k++) {
+            BridginessKernelTest.assertArrayEquals("MSP" + LENGTHS[k], heap.bridginessMSP[k],
+                    mapped.bridginessMSP[k], 0);
+        }
+        for (int k = 0; k < RADII.length; k++) {
+            BridginessKernelTest.assertArrayEquals("EXN" + RADII[k], heap.bridginessEXN[k],
+                    mapped.bridginessEXN[k], 0);
+        }
+
+        Bridginess bridginess = new Bridginess();
+        bridginess.setMinPathLengths(LENGTHS);
+        bridginess.setExclNeighbors(RADII);
+        bridginess.execute(graph);
+        double scale = directed ? 1 : 0.5;
+        checkScaled(heap.betweenness, bridginess.getResult(Bridginess.BETWEENNESS), scale);
+        for (int k = 0; k < LENGTHS.length; k++) {
+            checkScaled(heap.bridginessMSP[k], bridginess.getResult(Bridginess.BRIDGINESSMSP + LENGTHS[k]), scale);
+        }
+        checkScaled(heap.bridginessEXN[0], bridginess.getResult(Bridginess.BRIDGINESSEXN), scale);
+        checkScaled(heap.bridginessEXN[1], bridginess.getResult(Bridginess.BRIDGINESSEXN + RADII[1]), scale);
+
+        //other thresholds set after the run name nothing of it
+        bridginess.setMinPathLengths(new int[]{4});
+        bridginess.setExclNeighbors(new int[]{2, 3, 4});
+        checkScaled(heap.bridginessMSP[2], bridginess.getResult(Bridginess.BRIDGINESSMSP + LENGTHS[2]), scale);
+        checkScaled(heap.bridginessEXN[0], bridginess.getResult(Bridginess.BRIDGINESSEXN), scale);
+        assertNull(bridginess.getResult(Bridginess.BRIDGINESSMSP + 4));
+        assertNull(bridginess.getResult(Bridginess.BRIDGINESSEXN + 3));
+    }
+
+    private static void checkScaled(double[] sums, double[] result, double scale) {
+        assertNotNull(result);
+        assertEquals(sums.length, result.length);
+        for (int v = 0; v < sums.length; v++) {
+            assertEquals(sums[v] * scale, result[v], 1e-12 * (1 + Math.abs(sums[v])));
+        }
+    }
+
+    private static List<String[]> randomLines(int n, int count, Random random) {
+        List<String[]> lines = new ArrayList<String[]>();
+        for (int i = 0; i < count; i++) {
+            lines.add(new String[]{"n" + random.nextInt(n), "n" + random.nextInt(n)});
+        }
+        return lines;
+    }
+
+    //every separator and comment the reader skips, weights on some lines
+    private static void writeEdgeList(File file, List<String[]> lines) throws IOException {
+        String[] separators = {" ", "\t", ",", " , ", "  "};
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write("# source target weight\n");
+            for (int i = 0; i < lines.size(); i++) {
+                String separator = separators[i % separators.length];
+                out.write(lines.get(i)[0] + separator + lines.get(i)[1]);
+                if (i % 3 == 0) {
+                    out.write(separator + (1 + i % 4) * 0.5);
+                }
+                out.write(i % 7 == 0 ? "\n\n% comment\n" : "\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    //rows by id, the header under "id"
+    private static HashMap<String, String[]> readCsv(File file) throws IOException {
+        HashMap<String, String[]> rows = new HashMap<String, String[]>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(",", -1);
+                rows.put(fields[0], fields);
+            }
+        } finally {
+            in.close();
+        }
+        return rows;
+    }
+}